@@ -3,9 +3,11 @@ package com.webthanhtoan.backend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ComponentScan(basePackages = "com.webthanhtoan.backend")
+@EnableScheduling
 public class WebThanhToanApplication {
     public static void main(String[] args) {
         SpringApplication.run(WebThanhToanApplication.class, args);
@@ -0,0 +1,51 @@
+package com.webthanhtoan.backend.config;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Tables are still created by Hibernate (ddl-auto), so the Flyway migrations in
+ * db/migration/{vendor} only add to that schema and have to run after it.
+ * Spring Boot normally migrates before the EntityManagerFactory starts; the
+ * migration is moved to just after it here. On a database without Flyway
+ * history the existing schema is baselined at version 1.
+ *
+ * With ddl-auto create or create-drop Hibernate has just rebuilt its tables,
+ * dropping what the migrations added to them, while the Flyway history table
+ * (not an entity) survives. The history is dropped then, so every migration
+ * runs again on the new tables; they are written to be re-runnable.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.flyway", name = "enabled", matchIfMissing = true)
+public class FlywayConfig {
+
+    @Bean
+    public FlywayMigrationStrategy deferredFlywayMigrationStrategy() {
+        return flyway -> {
+            // Migrated by flywayAfterSchema once Hibernate has built the tables
+        };
+    }
+
+    @Bean
+    @DependsOn("entityManagerFactory")
+    public InitializingBean flywayAfterSchema(Flyway flyway, @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto) {
+        return () -> {
+            if ("create".equals(ddlAuto) || "create-drop".equals(ddlAuto)) {
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(flyway.getConfiguration().getDataSource());
+                // Flyway creates the table with a quoted name
+                String quote = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                        connection.getMetaData().getIdentifierQuoteString());
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + quote + flyway.getConfiguration().getTable() + quote);
+            }
+            flyway.migrate();
+        };
+    }
+}
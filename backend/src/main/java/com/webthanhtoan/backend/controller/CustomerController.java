@@ -1,17 +1,24 @@
 package com.webthanhtoan.backend.controller;
 
+import com.webthanhtoan.backend.dto.ChangeCursor;
+import com.webthanhtoan.backend.dto.ChangeSet;
+import com.webthanhtoan.backend.dto.CustomerChange;
+import com.webthanhtoan.backend.dto.CustomerResponse;
 import com.webthanhtoan.backend.entity.Customer;
 import com.webthanhtoan.backend.entity.User;
 import com.webthanhtoan.backend.repository.CustomerRepository;
+import com.webthanhtoan.backend.service.CatalogVersionService;
+import com.webthanhtoan.backend.service.CustomerSearchService;
+import com.webthanhtoan.backend.service.CustomerService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
 import java.util.Optional;
 
 @CrossOrigin(origins = "*", maxAge = 3600, allowCredentials = "false")
@@ -19,35 +26,76 @@ import java.util.Optional;
 @RequestMapping("/api/customers")
 public class CustomerController {
 
+    private static final int DEFAULT_SYNC_LIMIT = 1000;
+
+    private static final int MAX_SYNC_LIMIT = 5000;
+
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+
+    private static final int MAX_SEARCH_LIMIT = 500;
+
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerSearchService customerSearchService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     @GetMapping
-    public ResponseEntity<?> getAllCustomers(Authentication authentication) {
+    public ResponseEntity<?> getAllCustomers(WebRequest webRequest, Authentication authentication) {
         try {
             User currentUser = (User) authentication.getPrincipal();
-            List<Customer> customers = customerRepository.findByUser(currentUser);
-            
-            // Convert to DTOs to avoid circular reference
-            List<Map<String, Object>> customerDTOs = customers.stream().map(c -> {
-                Map<String, Object> dto = new HashMap<>();
-                dto.put("id", c.getId());
-                dto.put("name", c.getName());
-                dto.put("phone", c.getPhone());
-                dto.put("email", c.getEmail());
-                dto.put("address", c.getAddress());
-                dto.put("createdAt", c.getCreatedAt());
-                dto.put("updatedAt", c.getUpdatedAt());
-                return dto;
-            }).toList();
-            
-            return ResponseEntity.ok(customerDTOs);
+
+            // Unchanged since the client's copy: 304 without querying the customers
+            String eTag = CatalogVersionService.eTag("customers", currentUser.getId(),
+                    catalogVersionService.customerVersion(currentUser.getId()));
+            if (webRequest.checkNotModified(eTag)) {
+                return null;
+            }
+
+            List<CustomerResponse> customers = customerRepository.findByUser(currentUser);
+
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .cacheControl(CatalogVersionService.CACHE_CONTROL)
+                    .body(customers);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Error getting customers: " + e.getMessage());
         }
     }
 
+    /**
+     * Delta sync: customers created, changed or deleted after the {@code since}
+     * token of the previous sync, oldest change first. Without a token every
+     * customer is returned, in pages of {@code limit}.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getCustomerChanges(@RequestParam(required = false) String since,
+                                                @RequestParam(required = false) Integer limit,
+                                                Authentication authentication) {
+        try {
+            User currentUser = (User) authentication.getPrincipal();
+            ChangeCursor after = ChangeCursor.decode(since);
+            int pageSize = limit == null ? DEFAULT_SYNC_LIMIT : Math.max(1, Math.min(limit, MAX_SYNC_LIMIT));
+
+            List<CustomerChange> changes = customerRepository.findChangesAfter(currentUser, after.changeSeq(), after.id(),
+                    Limit.of(pageSize + 1));
+
+            return ResponseEntity.ok(ChangeSet.of(changes, pageSize, after));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("Error getting customer changes: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getCustomerById(@PathVariable Long id, Authentication authentication) {
         try {
@@ -62,17 +110,7 @@ public class CustomerController {
                     return ResponseEntity.status(403).body("Access denied");
                 }
                 
-                // Convert to DTO
-                Map<String, Object> dto = new HashMap<>();
-                dto.put("id", customer.getId());
-                dto.put("name", customer.getName());
-                dto.put("phone", customer.getPhone());
-                dto.put("email", customer.getEmail());
-                dto.put("address", customer.getAddress());
-                dto.put("createdAt", customer.getCreatedAt());
-                dto.put("updatedAt", customer.getUpdatedAt());
-                
-                return ResponseEntity.ok(dto);
+                return ResponseEntity.ok(CustomerResponse.from(customer));
             }
             return ResponseEntity.notFound().build();
         } catch (Exception e) {
@@ -81,26 +119,19 @@ public class CustomerController {
         }
     }
 
+    /**
+     * Checkout lookup by phone digits or name words, best matches first, at
+     * most {@code limit} (default 50).
+     */
     @GetMapping("/search")
-    public ResponseEntity<?> searchCustomers(@RequestParam String search, Authentication authentication) {
+    public ResponseEntity<?> searchCustomers(@RequestParam String search, @RequestParam(required = false) Integer limit,
+                                             Authentication authentication) {
         try {
             User currentUser = (User) authentication.getPrincipal();
-            List<Customer> customers = customerRepository.findByUserAndSearch(currentUser, search);
-            
-            // Convert to DTOs to avoid circular reference
-            List<Map<String, Object>> customerDTOs = customers.stream().map(c -> {
-                Map<String, Object> dto = new HashMap<>();
-                dto.put("id", c.getId());
-                dto.put("name", c.getName());
-                dto.put("phone", c.getPhone());
-                dto.put("email", c.getEmail());
-                dto.put("address", c.getAddress());
-                dto.put("createdAt", c.getCreatedAt());
-                dto.put("updatedAt", c.getUpdatedAt());
-                return dto;
-            }).toList();
-            
-            return ResponseEntity.ok(customerDTOs);
+            int maxResults = limit == null ? DEFAULT_SEARCH_LIMIT : Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+            List<CustomerResponse> customers = customerSearchService.search(currentUser, search, maxResults);
+
+            return ResponseEntity.ok(customers);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Error searching customers: " + e.getMessage());
@@ -112,8 +143,8 @@ public class CustomerController {
         try {
             User currentUser = (User) authentication.getPrincipal();
             customer.setUser(currentUser);
-            Customer savedCustomer = customerRepository.save(customer);
-            return ResponseEntity.ok(savedCustomer);
+            Customer savedCustomer = customerService.save(customer);
+            return ResponseEntity.ok(CustomerResponse.from(savedCustomer));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error creating customer: " + e.getMessage());
         }
@@ -138,8 +169,8 @@ public class CustomerController {
                 customer.setEmail(customerDetails.getEmail());
                 customer.setAddress(customerDetails.getAddress());
                 
-                Customer updatedCustomer = customerRepository.save(customer);
-                return ResponseEntity.ok(updatedCustomer);
+                Customer updatedCustomer = customerService.save(customer);
+                return ResponseEntity.ok(CustomerResponse.from(updatedCustomer));
             }
             return ResponseEntity.notFound().build();
         } catch (Exception e) {
@@ -161,7 +192,7 @@ public class CustomerController {
                     return ResponseEntity.status(403).body("Access denied: Customer does not belong to current user");
                 }
                 
-                customerRepository.delete(customer);
+                customerService.delete(customer);
                 return ResponseEntity.ok().build();
             }
             return ResponseEntity.notFound().build();
@@ -1,56 +1,72 @@
 package com.webthanhtoan.backend.controller;
 
+import com.webthanhtoan.backend.dto.ChangeCursor;
+import com.webthanhtoan.backend.dto.ChangeSet;
+import com.webthanhtoan.backend.dto.ProductChange;
+import com.webthanhtoan.backend.dto.ProductResponse;
+import com.webthanhtoan.backend.dto.ProductScanResponse;
 import com.webthanhtoan.backend.entity.Product;
 import com.webthanhtoan.backend.entity.User;
 import com.webthanhtoan.backend.repository.ProductRepository;
+import com.webthanhtoan.backend.service.CatalogVersionService;
+import com.webthanhtoan.backend.service.ProductCatalogService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.HashMap;
 
 @CrossOrigin(origins = "*", maxAge = 3600, allowCredentials = "false")
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
+    private static final int DEFAULT_SYNC_LIMIT = 1000;
+
+    private static final int MAX_SYNC_LIMIT = 5000;
+
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+
+    private static final int MAX_SEARCH_LIMIT = 500;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductCatalogService productCatalogService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     @GetMapping
-    public ResponseEntity<?> getAllProducts(Authentication authentication) {
+    public ResponseEntity<?> getAllProducts(WebRequest webRequest, Authentication authentication) {
         try {
             if (authentication == null) {
                 return ResponseEntity.status(401).body("No authentication found");
             }
             
             User currentUser = (User) authentication.getPrincipal();
+
+            // Unchanged since the client's copy: 304 without loading the catalog
+            long version = catalogVersionService.productVersion(currentUser.getId());
+            if (webRequest.checkNotModified(CatalogVersionService.eTag("products", currentUser.getId(), version))) {
+                return null;
+            }
+
             System.out.println("Getting products for user: " + currentUser.getUsername() + " (ID: " + currentUser.getId() + ")");
             
-            List<Product> products = productRepository.findByUserAndIsActiveTrue(currentUser);
-            System.out.println("Found " + products.size() + " products for user " + currentUser.getUsername());
-            
-            // Convert to DTOs to avoid circular reference and lazy loading issues
-            List<Map<String, Object>> productDTOs = products.stream().map(p -> {
-                Map<String, Object> dto = new HashMap<>();
-                dto.put("id", p.getId());
-                dto.put("name", p.getName());
-                dto.put("description", p.getDescription());
-                dto.put("costPrice", p.getCostPrice());
-                dto.put("price", p.getPrice());
-                dto.put("stock", p.getStock());
-                dto.put("isActive", p.getIsActive());
-                dto.put("createdAt", p.getCreatedAt());
-                dto.put("updatedAt", p.getUpdatedAt());
-                return dto;
-            }).toList();
-            
-            return ResponseEntity.ok(productDTOs);
+            ProductCatalogService.Listing listing = productCatalogService.activeProducts(currentUser, version);
+            System.out.println("Found " + listing.products().size() + " products for user " + currentUser.getUsername());
+
+            return ResponseEntity.ok()
+                    .eTag(CatalogVersionService.eTag("products", currentUser.getId(), listing.version()))
+                    .cacheControl(CatalogVersionService.CACHE_CONTROL)
+                    .body(listing.products());
         } catch (Exception e) {
             System.err.println("Error in getAllProducts: " + e.getMessage());
             e.printStackTrace();
@@ -58,10 +74,42 @@ public class ProductController {
         }
     }
 
+    /**
+     * Delta sync: products created, changed or deactivated after the {@code since}
+     * token of the previous sync, oldest change first. Without a token every
+     * product is returned, in pages of {@code limit}.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getProductChanges(@RequestParam(required = false) String since,
+                                               @RequestParam(required = false) Integer limit,
+                                               Authentication authentication) {
+        try {
+            User currentUser = (User) authentication.getPrincipal();
+            ChangeCursor after = ChangeCursor.decode(since);
+            int pageSize = limit == null ? DEFAULT_SYNC_LIMIT : Math.max(1, Math.min(limit, MAX_SYNC_LIMIT));
+
+            List<ProductChange> changes = productRepository.findChangesAfter(currentUser, after.changeSeq(), after.id(),
+                    Limit.of(pageSize + 1));
+
+            return ResponseEntity.ok(ChangeSet.of(changes, pageSize, after));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("Error getting product changes: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getProductById(@PathVariable Long id, Authentication authentication) {
         try {
             User currentUser = (User) authentication.getPrincipal();
+            Optional<ProductResponse> cached = productCatalogService.findActive(currentUser, id);
+            if (cached.isPresent()) {
+                return ResponseEntity.ok(cached.get());
+            }
+
+            // Not an active product of this user: inactive, someone else's or unknown
             Optional<Product> productOpt = productRepository.findById(id);
             
             if (productOpt.isPresent()) {
@@ -72,19 +120,7 @@ public class ProductController {
                     return ResponseEntity.status(403).body("Access denied");
                 }
                 
-                // Convert to DTO
-                Map<String, Object> dto = new HashMap<>();
-                dto.put("id", product.getId());
-                dto.put("name", product.getName());
-                dto.put("description", product.getDescription());
-                dto.put("costPrice", product.getCostPrice());
-                dto.put("price", product.getPrice());
-                dto.put("stock", product.getStock());
-                dto.put("isActive", product.getIsActive());
-                dto.put("createdAt", product.getCreatedAt());
-                dto.put("updatedAt", product.getUpdatedAt());
-                
-                return ResponseEntity.ok(dto);
+                return ResponseEntity.ok(ProductResponse.from(product));
             }
             return ResponseEntity.notFound().build();
         } catch (Exception e) {
@@ -94,55 +130,45 @@ public class ProductController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<?> searchProducts(@RequestParam String name, Authentication authentication) {
+    public ResponseEntity<?> searchProducts(@RequestParam String name, @RequestParam(required = false) Integer limit,
+                                            Authentication authentication) {
         try {
             User currentUser = (User) authentication.getPrincipal();
-            List<Product> products = productRepository.findByUserAndNameContainingAndIsActiveTrue(currentUser, name);
-            
-            // Convert to DTOs to avoid circular reference
-            List<Map<String, Object>> productDTOs = products.stream().map(p -> {
-                Map<String, Object> dto = new HashMap<>();
-                dto.put("id", p.getId());
-                dto.put("name", p.getName());
-                dto.put("description", p.getDescription());
-                dto.put("costPrice", p.getCostPrice());
-                dto.put("price", p.getPrice());
-                dto.put("stock", p.getStock());
-                dto.put("isActive", p.getIsActive());
-                dto.put("createdAt", p.getCreatedAt());
-                dto.put("updatedAt", p.getUpdatedAt());
-                return dto;
-            }).toList();
-            
-            return ResponseEntity.ok(productDTOs);
+            int maxResults = limit == null ? DEFAULT_SEARCH_LIMIT : Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+            List<ProductResponse> products = productCatalogService.search(currentUser, name, maxResults);
+
+            return ResponseEntity.ok(products);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Error searching products: " + e.getMessage());
         }
     }
 
+    /**
+     * Barcode scan at the till: the active product with this barcode, looked up
+     * in the cached catalog.
+     */
+    @GetMapping("/scan/{code}")
+    public ResponseEntity<?> scanProduct(@PathVariable String code, Authentication authentication) {
+        try {
+            User currentUser = (User) authentication.getPrincipal();
+            Optional<ProductResponse> product = productCatalogService.findByBarcode(currentUser, code);
+
+            return product.<ResponseEntity<?>>map(found -> ResponseEntity.ok(ProductScanResponse.from(found)))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("Error scanning product: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/low-stock")
     public ResponseEntity<?> getLowStockProducts(@RequestParam(defaultValue = "10") Integer threshold, Authentication authentication) {
         try {
             User currentUser = (User) authentication.getPrincipal();
-            List<Product> products = productRepository.findLowStockProductsByUser(currentUser, threshold);
-            
-            // Convert to DTOs to avoid circular reference
-            List<Map<String, Object>> productDTOs = products.stream().map(p -> {
-                Map<String, Object> dto = new HashMap<>();
-                dto.put("id", p.getId());
-                dto.put("name", p.getName());
-                dto.put("description", p.getDescription());
-                dto.put("costPrice", p.getCostPrice());
-                dto.put("price", p.getPrice());
-                dto.put("stock", p.getStock());
-                dto.put("isActive", p.getIsActive());
-                dto.put("createdAt", p.getCreatedAt());
-                dto.put("updatedAt", p.getUpdatedAt());
-                return dto;
-            }).toList();
-            
-            return ResponseEntity.ok(productDTOs);
+            List<ProductResponse> products = productCatalogService.lowStock(currentUser, threshold);
+
+            return ResponseEntity.ok(products);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Error getting low stock products: " + e.getMessage());
@@ -154,21 +180,11 @@ public class ProductController {
         try {
             User currentUser = (User) authentication.getPrincipal();
             product.setUser(currentUser);
-            Product savedProduct = productRepository.save(product);
+            Product savedProduct = productCatalogService.save(product);
             
-            // Convert to DTO
-            Map<String, Object> dto = new HashMap<>();
-            dto.put("id", savedProduct.getId());
-            dto.put("name", savedProduct.getName());
-            dto.put("description", savedProduct.getDescription());
-            dto.put("costPrice", savedProduct.getCostPrice());
-            dto.put("price", savedProduct.getPrice());
-            dto.put("stock", savedProduct.getStock());
-            dto.put("isActive", savedProduct.getIsActive());
-            dto.put("createdAt", savedProduct.getCreatedAt());
-            dto.put("updatedAt", savedProduct.getUpdatedAt());
-            
-            return ResponseEntity.ok(dto);
+            return ResponseEntity.ok(ProductResponse.from(savedProduct));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Error creating product: " + e.getMessage());
@@ -190,29 +206,20 @@ public class ProductController {
                 }
                 
                 product.setName(productDetails.getName());
+                product.setBarcode(productDetails.getBarcode());
                 product.setDescription(productDetails.getDescription());
                 product.setCostPrice(productDetails.getCostPrice());
                 product.setPrice(productDetails.getPrice());
                 product.setStock(productDetails.getStock());
                 product.setIsActive(productDetails.getIsActive());
                 
-                Product updatedProduct = productRepository.save(product);
-                
-                // Convert to DTO
-                Map<String, Object> dto = new HashMap<>();
-                dto.put("id", updatedProduct.getId());
-                dto.put("name", updatedProduct.getName());
-                dto.put("description", updatedProduct.getDescription());
-                dto.put("costPrice", updatedProduct.getCostPrice());
-                dto.put("price", updatedProduct.getPrice());
-                dto.put("stock", updatedProduct.getStock());
-                dto.put("isActive", updatedProduct.getIsActive());
-                dto.put("createdAt", updatedProduct.getCreatedAt());
-                dto.put("updatedAt", updatedProduct.getUpdatedAt());
+                Product updatedProduct = productCatalogService.save(product);
                 
-                return ResponseEntity.ok(dto);
+                return ResponseEntity.ok(ProductResponse.from(updatedProduct));
             }
             return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Error updating product: " + e.getMessage());
@@ -234,7 +241,7 @@ public class ProductController {
                 }
                 
                 product.setIsActive(false);
-                productRepository.save(product);
+                productCatalogService.save(product);
                 
                 return ResponseEntity.ok().body("Product deleted successfully");
             }
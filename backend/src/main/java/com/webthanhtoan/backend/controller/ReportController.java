@@ -0,0 +1,95 @@
+package com.webthanhtoan.backend.controller;
+
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.service.InvoiceExportService;
+import com.webthanhtoan.backend.service.ReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
+
+@CrossOrigin(origins = "*", maxAge = 3600, allowCredentials = "false")
+@RestController
+@RequestMapping("/api/reports")
+public class ReportController {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    @Autowired
+    private ReportService reportService;
+
+    @GetMapping("/summary")
+    public ResponseEntity<?> getSummary(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String status,
+            Authentication authentication) {
+        try {
+            User currentUser = (User) authentication.getPrincipal();
+            return ResponseEntity.ok(reportService.summary(currentUser, startDate, endDate,
+                    status == null || status.isEmpty() ? null : status));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("Error loading report summary: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/products")
+    public ResponseEntity<?> getProductSales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "PAID") String status,
+            @RequestParam(defaultValue = "revenue") String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size,
+            Authentication authentication) {
+        try {
+            User currentUser = (User) authentication.getPrincipal();
+            ReportService.ProductRanking ranking = ReportService.ProductRanking.valueOf(sort.toUpperCase());
+            int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+            return ResponseEntity.ok(reportService.productSales(currentUser, startDate, endDate, status,
+                    ranking, Math.max(page, 0), pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Unsupported sort: " + sort);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("Error loading product sales: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/products/export")
+    public void exportProductSales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "PAID") String status,
+            @RequestParam(defaultValue = "revenue") String sort,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response,
+            Authentication authentication) throws IOException {
+        User currentUser = (User) authentication.getPrincipal();
+
+        ReportService.ProductRanking ranking;
+        InvoiceExportService.Format exportFormat;
+        try {
+            ranking = ReportService.ProductRanking.valueOf(sort.toUpperCase());
+            exportFormat = InvoiceExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported sort or format: " + sort + ", " + format);
+            return;
+        }
+        String extension = exportFormat == InvoiceExportService.Format.CSV ? "csv" : "json";
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(exportFormat == InvoiceExportService.Format.CSV ? "text/csv" : "application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"product-sales." + extension + "\"");
+        reportService.exportProductSales(currentUser, startDate, endDate, status, ranking, exportFormat, response.getOutputStream());
+    }
+}
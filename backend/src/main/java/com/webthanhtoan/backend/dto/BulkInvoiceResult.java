@@ -0,0 +1,30 @@
+package com.webthanhtoan.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/**
+ * One line of the NDJSON response of POST /api/invoices/bulk. {@code line} is the
+ * 1-based line number of the record in the request body. A record whose
+ * clientSaleId was booked before is REPLAYED with the invoice booked then.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkInvoiceResult(long line, String status, Long id, String invoiceNumber,
+                                @JsonRawValue String invoice, String error) {
+
+    public static final String CREATED = "CREATED";
+    public static final String REPLAYED = "REPLAYED";
+    public static final String REJECTED = "REJECTED";
+
+    public static BulkInvoiceResult created(long line, Long id, String invoiceNumber, String invoice) {
+        return new BulkInvoiceResult(line, CREATED, id, invoiceNumber, invoice, null);
+    }
+
+    public static BulkInvoiceResult replayed(long line, Long id, String invoiceNumber, String invoice) {
+        return new BulkInvoiceResult(line, REPLAYED, id, invoiceNumber, invoice, null);
+    }
+
+    public static BulkInvoiceResult rejected(long line, String error) {
+        return new BulkInvoiceResult(line, REJECTED, null, null, null, error);
+    }
+}
@@ -0,0 +1,17 @@
+package com.webthanhtoan.backend.dto;
+
+/**
+ * Current versions of a user's product and customer lists.
+ */
+public record CatalogVersions(long products, long customers) {
+
+    public static final CatalogVersions INITIAL = new CatalogVersions(0, 0);
+
+    public CatalogVersions withProducts(long version) {
+        return version > products ? new CatalogVersions(version, customers) : this;
+    }
+
+    public CatalogVersions withCustomers(long version) {
+        return version > customers ? new CatalogVersions(products, version) : this;
+    }
+}
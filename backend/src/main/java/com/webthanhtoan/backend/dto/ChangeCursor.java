@@ -0,0 +1,32 @@
+package com.webthanhtoan.backend.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Delta sync position in a (changeSeq, id) ordered list, handed to clients as
+ * an opaque token. The next sync returns the rows strictly after it.
+ */
+public record ChangeCursor(long changeSeq, long id) {
+
+    /** Sorts before every real row, used for the first sync. */
+    public static final ChangeCursor START = new ChangeCursor(0, 0);
+
+    public String encode() {
+        String raw = changeSeq + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ChangeCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new ChangeCursor(Long.parseLong(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid sync token");
+        }
+    }
+}
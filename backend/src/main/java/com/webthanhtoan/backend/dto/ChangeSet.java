@@ -0,0 +1,50 @@
+package com.webthanhtoan.backend.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows changed since a sync token: current state of the active ones, ids of the
+ * deactivated ones. Pass {@code next} as the next {@code since}; while
+ * {@code hasMore} is true there are further changes to fetch right away.
+ */
+public record ChangeSet<T>(List<T> upserts, List<Long> deleted, String next, boolean hasMore) {
+
+    /**
+     * One row of a delta sync query, in (changeSeq, id) order.
+     */
+    public interface Row<T> {
+        long changeSeq();
+
+        boolean active();
+
+        T item();
+
+        Long id();
+    }
+
+    /**
+     * Builds the change set from up to {@code limit + 1} rows read after {@code since}.
+     */
+    public static <T> ChangeSet<T> of(List<? extends Row<T>> rows, int limit, ChangeCursor since) {
+        boolean hasMore = rows.size() > limit;
+        List<? extends Row<T>> page = hasMore ? rows.subList(0, limit) : rows;
+
+        List<T> upserts = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (Row<T> row : page) {
+            if (row.active()) {
+                upserts.add(row.item());
+            } else {
+                deleted.add(row.id());
+            }
+        }
+
+        ChangeCursor next = since;
+        if (!page.isEmpty()) {
+            Row<T> last = page.get(page.size() - 1);
+            next = new ChangeCursor(last.changeSeq(), last.id());
+        }
+        return new ChangeSet<>(upserts, deleted, next.encode(), hasMore);
+    }
+}
@@ -3,6 +3,7 @@ package com.webthanhtoan.backend.dto;
 import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public class CreateInvoiceRequest {
@@ -18,6 +19,11 @@ public class CreateInvoiceRequest {
     private BigDecimal discountPercentage = BigDecimal.ZERO;
     private String notes;
 
+    // Sent by tills syncing offline sales: the till's own id for the sale, used
+    // as its idempotency key, and when the sale was made
+    private String clientSaleId;
+    private LocalDateTime soldAt;
+
     // Getters and Setters
     public Long getCustomerId() {
         return customerId;
@@ -67,6 +73,22 @@ public class CreateInvoiceRequest {
         this.notes = notes;
     }
 
+    public String getClientSaleId() {
+        return clientSaleId;
+    }
+
+    public void setClientSaleId(String clientSaleId) {
+        this.clientSaleId = clientSaleId;
+    }
+
+    public LocalDateTime getSoldAt() {
+        return soldAt;
+    }
+
+    public void setSoldAt(LocalDateTime soldAt) {
+        this.soldAt = soldAt;
+    }
+
     public static class InvoiceItemRequest {
         @NotNull
         private Long productId;
@@ -0,0 +1,21 @@
+package com.webthanhtoan.backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A customer as read by delta sync, with its position in the change order.
+ */
+public record CustomerChange(long changeSeq, boolean active, CustomerResponse item) implements ChangeSet.Row<CustomerResponse> {
+
+    // Flat form for the JPQL constructor expression
+    public CustomerChange(Long changeSeq, Boolean isActive, Long id, String name, String phone, String email,
+                          String address, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(changeSeq, Boolean.TRUE.equals(isActive),
+                new CustomerResponse(id, name, phone, email, address, createdAt, updatedAt));
+    }
+
+    @Override
+    public Long id() {
+        return item.id();
+    }
+}
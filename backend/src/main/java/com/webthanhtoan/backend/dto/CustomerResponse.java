@@ -0,0 +1,17 @@
+package com.webthanhtoan.backend.dto;
+
+import com.webthanhtoan.backend.entity.Customer;
+
+import java.time.LocalDateTime;
+
+/**
+ * Customer as returned by /api/customers.
+ */
+public record CustomerResponse(Long id, String name, String phone, String email, String address,
+                               LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public static CustomerResponse from(Customer customer) {
+        return new CustomerResponse(customer.getId(), customer.getName(), customer.getPhone(), customer.getEmail(),
+                customer.getAddress(), customer.getCreatedAt(), customer.getUpdatedAt());
+    }
+}
@@ -0,0 +1,17 @@
+package com.webthanhtoan.backend.dto;
+
+import com.webthanhtoan.backend.entity.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Revenue of one day for the revenue chart.
+ */
+public record DailyRevenuePoint(LocalDate date, Money revenue) {
+
+    // Used by the JPQL constructor expression, where the sum arrives as BigDecimal
+    public DailyRevenuePoint(LocalDate date, BigDecimal revenue) {
+        this(date, Money.of(revenue));
+    }
+}
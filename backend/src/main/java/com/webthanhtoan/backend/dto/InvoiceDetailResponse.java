@@ -0,0 +1,11 @@
+package com.webthanhtoan.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import java.util.List;
+
+/**
+ * Invoice header plus its lines, as returned by GET /api/invoices/{id}.
+ */
+public record InvoiceDetailResponse(@JsonUnwrapped InvoiceResponse invoice, List<InvoiceItemResponse> items) {
+}
@@ -0,0 +1,27 @@
+package com.webthanhtoan.backend.dto;
+
+import com.webthanhtoan.backend.entity.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * Invoice line as returned by GET /api/invoices/{id}, with the product it refers to.
+ */
+public record InvoiceItemResponse(Long id, Integer quantity, Money unitPrice, Money costPrice,
+                                  Money discountAmount, BigDecimal discountPercentage, Money totalPrice,
+                                  ProductInfo product) {
+
+    public record ProductInfo(Long id, String name, String description, BigDecimal price, BigDecimal costPrice, Integer stock) {}
+
+    /**
+     * Flat form for JPQL constructor expressions.
+     */
+    public InvoiceItemResponse(Long id, Integer quantity, Money unitPrice, Money costPrice,
+                               Money discountAmount, BigDecimal discountPercentage, Money totalPrice,
+                               Long productId, String productName, String productDescription, BigDecimal productPrice,
+                               BigDecimal productCostPrice, Integer productStock) {
+        this(id, quantity, unitPrice, costPrice, discountAmount, discountPercentage, totalPrice,
+                productId == null ? null : new ProductInfo(productId, productName, productDescription, productPrice,
+                        productCostPrice, productStock));
+    }
+}
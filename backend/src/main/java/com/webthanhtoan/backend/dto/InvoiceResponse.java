@@ -0,0 +1,45 @@
+package com.webthanhtoan.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.webthanhtoan.backend.entity.Customer;
+import com.webthanhtoan.backend.entity.Invoice;
+import com.webthanhtoan.backend.entity.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Invoice header as returned by the invoice list, create and update endpoints.
+ * {@code customer} is left out for walk-in sales.
+ */
+public record InvoiceResponse(Long id, String invoiceNumber, Money subtotal, Money discountAmount,
+                              BigDecimal discountPercentage, Money totalAmount, String paymentMethod,
+                              String paymentStatus, String notes, LocalDateTime createdAt, LocalDateTime updatedAt,
+                              @JsonInclude(JsonInclude.Include.NON_NULL) CustomerInfo customer) {
+
+    public record CustomerInfo(Long id, String name, String phone, String email, String address) {}
+
+    /**
+     * Flat form for JPQL constructor expressions, which cannot build the nested
+     * customer themselves.
+     */
+    public InvoiceResponse(Long id, String invoiceNumber, Money subtotal, Money discountAmount,
+                           BigDecimal discountPercentage, Money totalAmount, String paymentMethod,
+                           String paymentStatus, String notes, LocalDateTime createdAt, LocalDateTime updatedAt,
+                           Long customerId, String customerName, String customerPhone, String customerEmail,
+                           String customerAddress) {
+        this(id, invoiceNumber, subtotal, discountAmount, discountPercentage, totalAmount, paymentMethod, paymentStatus,
+                notes, createdAt, updatedAt,
+                customerId == null ? null : new CustomerInfo(customerId, customerName, customerPhone, customerEmail, customerAddress));
+    }
+
+    public static InvoiceResponse from(Invoice invoice) {
+        Customer customer = invoice.getCustomer();
+        return new InvoiceResponse(invoice.getId(), invoice.getInvoiceNumber(), invoice.getSubtotal(),
+                invoice.getDiscountAmount(), invoice.getDiscountPercentage(), invoice.getTotalAmount(),
+                invoice.getPaymentMethod(), invoice.getPaymentStatus(), invoice.getNotes(), invoice.getCreatedAt(),
+                invoice.getUpdatedAt(),
+                customer == null ? null : new CustomerInfo(customer.getId(), customer.getName(), customer.getPhone(),
+                        customer.getEmail(), customer.getAddress()));
+    }
+}
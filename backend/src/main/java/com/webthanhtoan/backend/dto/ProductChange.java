@@ -0,0 +1,22 @@
+package com.webthanhtoan.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A product as read by delta sync, with its position in the change order.
+ */
+public record ProductChange(long changeSeq, boolean active, ProductResponse item) implements ChangeSet.Row<ProductResponse> {
+
+    // Flat form for the JPQL constructor expression
+    public ProductChange(Long changeSeq, Long id, String name, String barcode, String description, BigDecimal costPrice,
+                         BigDecimal price, Integer stock, Boolean isActive, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(changeSeq, Boolean.TRUE.equals(isActive),
+                new ProductResponse(id, name, barcode, description, costPrice, price, stock, isActive, createdAt, updatedAt));
+    }
+
+    @Override
+    public Long id() {
+        return item.id();
+    }
+}
@@ -0,0 +1,20 @@
+package com.webthanhtoan.backend.dto;
+
+import com.webthanhtoan.backend.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Product as returned by /api/products. List queries build it directly with a
+ * constructor expression, so only these columns are read.
+ */
+public record ProductResponse(Long id, String name, String barcode, String description, BigDecimal costPrice,
+                              BigDecimal price, Integer stock, Boolean isActive, LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public static ProductResponse from(Product product) {
+        return new ProductResponse(product.getId(), product.getName(), product.getBarcode(), product.getDescription(),
+                product.getCostPrice(), product.getPrice(), product.getStock(), product.getIsActive(), product.getCreatedAt(),
+                product.getUpdatedAt());
+    }
+}
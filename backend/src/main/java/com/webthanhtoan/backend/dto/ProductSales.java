@@ -0,0 +1,32 @@
+package com.webthanhtoan.backend.dto;
+
+import com.webthanhtoan.backend.entity.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Units sold, revenue and cost of one product over a date range. Cost uses the
+ * cost price recorded on each invoice line, so later price changes do not
+ * rewrite past margins. {@code marginPercentage} is gross margin over revenue.
+ */
+public record ProductSales(Long productId, String productName, long quantity, Money revenue,
+                           Money cost, Money grossMargin, BigDecimal marginPercentage) {
+
+    // Used by the JPQL constructor expression, where sums arrive as BigDecimal
+    public ProductSales(Long productId, String productName, Long quantity, BigDecimal revenue, BigDecimal cost) {
+        this(productId, productName, quantity, Money.of(revenue), Money.of(cost));
+    }
+
+    private ProductSales(Long productId, String productName, long quantity, Money revenue, Money cost) {
+        this(productId, productName, quantity, revenue, cost, revenue.minus(cost), percentage(revenue.minus(cost), revenue));
+    }
+
+    private static BigDecimal percentage(Money part, Money whole) {
+        if (whole.isZero()) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(part.hundredths()).multiply(BigDecimal.valueOf(100))
+                .divide(BigDecimal.valueOf(whole.hundredths()), 2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,11 @@
+package com.webthanhtoan.backend.dto;
+
+import java.util.List;
+
+/**
+ * One page of the product sales report. Rows are ranked by an aggregate, so
+ * pages are numbered rather than keyset-based; {@code hasNext} is false on the
+ * last page.
+ */
+public record ProductSalesPage(List<ProductSales> items, int page, int size, boolean hasNext) {
+}
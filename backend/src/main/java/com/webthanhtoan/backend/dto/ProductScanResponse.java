@@ -0,0 +1,13 @@
+package com.webthanhtoan.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * What a checkout scanner needs of a product, as returned by /api/products/scan.
+ */
+public record ProductScanResponse(Long id, String barcode, String name, BigDecimal price, Integer stock) {
+
+    public static ProductScanResponse from(ProductResponse product) {
+        return new ProductScanResponse(product.id(), product.barcode(), product.name(), product.price(), product.stock());
+    }
+}
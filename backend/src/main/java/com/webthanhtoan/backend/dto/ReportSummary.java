@@ -0,0 +1,24 @@
+package com.webthanhtoan.backend.dto;
+
+import com.webthanhtoan.backend.entity.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Sales figures for a date range, as returned by GET /api/reports/summary.
+ * {@code totalDiscount} is subtotal minus total, so it includes percentage
+ * discounts.
+ */
+public record ReportSummary(LocalDate startDate, LocalDate endDate, String status,
+                            long invoiceCount, Money totalRevenue, Money totalSubtotal,
+                            Money totalDiscount, Money averageOrderValue,
+                            BigDecimal averageItemsPerInvoice, long itemQuantity,
+                            List<Breakdown> paymentMethods, List<Breakdown> paymentStatuses) {
+
+    /**
+     * Invoice count and revenue for one payment method or status, largest count first.
+     */
+    public record Breakdown(String key, long count, Money revenue) {}
+}
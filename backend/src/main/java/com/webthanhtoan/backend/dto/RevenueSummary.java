@@ -0,0 +1,39 @@
+package com.webthanhtoan.backend.dto;
+
+import com.webthanhtoan.backend.entity.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Response of GET /api/invoices/revenue-summary. Change percentages compare
+ * today with yesterday and this month with last month, and are 0 when there
+ * is nothing to compare with.
+ */
+public record RevenueSummary(String date,
+                             Money todayRevenue, Money yesterdayRevenue,
+                             Money thisMonthRevenue, Money lastMonthRevenue,
+                             long todayTransactions, long yesterdayTransactions,
+                             long thisMonthTransactions, long lastMonthTransactions,
+                             double dailyChangePercentage, double monthlyChangePercentage) {
+
+    public static RevenueSummary of(LocalDate date, RevenueTotals totals) {
+        return new RevenueSummary(date.toString(),
+                totals.todayRevenue(), totals.yesterdayRevenue(), totals.thisMonthRevenue(), totals.lastMonthRevenue(),
+                totals.todayTransactions(), totals.yesterdayTransactions(),
+                totals.thisMonthTransactions(), totals.lastMonthTransactions(),
+                changePercentage(totals.todayRevenue(), totals.yesterdayRevenue()),
+                changePercentage(totals.thisMonthRevenue(), totals.lastMonthRevenue()));
+    }
+
+    private static double changePercentage(Money current, Money previous) {
+        if (previous.signum() <= 0) {
+            return 0.0;
+        }
+        return BigDecimal.valueOf(current.minus(previous).hundredths())
+                .divide(BigDecimal.valueOf(previous.hundredths()), 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100))
+                .doubleValue();
+    }
+}
@@ -0,0 +1,24 @@
+package com.webthanhtoan.backend.dto;
+
+import com.webthanhtoan.backend.entity.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * Revenue and invoice counts for the four periods of the revenue summary, read
+ * in one pass with conditional sums.
+ */
+public record RevenueTotals(Money todayRevenue, Money yesterdayRevenue,
+                            Money thisMonthRevenue, Money lastMonthRevenue,
+                            Long todayTransactions, Long yesterdayTransactions,
+                            Long thisMonthTransactions, Long lastMonthTransactions) {
+
+    // Used by the JPQL constructor expression, where sums arrive as BigDecimal
+    public RevenueTotals(BigDecimal todayRevenue, BigDecimal yesterdayRevenue,
+                         BigDecimal thisMonthRevenue, BigDecimal lastMonthRevenue,
+                         Long todayTransactions, Long yesterdayTransactions,
+                         Long thisMonthTransactions, Long lastMonthTransactions) {
+        this(Money.of(todayRevenue), Money.of(yesterdayRevenue), Money.of(thisMonthRevenue), Money.of(lastMonthRevenue),
+                todayTransactions, yesterdayTransactions, thisMonthTransactions, lastMonthTransactions);
+    }
+}
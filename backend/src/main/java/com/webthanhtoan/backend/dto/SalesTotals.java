@@ -0,0 +1,19 @@
+package com.webthanhtoan.backend.dto;
+
+import com.webthanhtoan.backend.entity.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregated invoices for one (payment status, payment method) pair, as read by
+ * the report GROUP BY queries.
+ */
+public record SalesTotals(String paymentStatus, String paymentMethod, Long invoiceCount,
+                          Money revenue, Money subtotal) {
+
+    // Used by the JPQL constructor expression, where sums arrive as BigDecimal
+    public SalesTotals(String paymentStatus, String paymentMethod, Long invoiceCount,
+                       BigDecimal revenue, BigDecimal subtotal) {
+        this(paymentStatus, paymentMethod, invoiceCount, Money.of(revenue), Money.of(subtotal));
+    }
+}
@@ -0,0 +1,65 @@
+package com.webthanhtoan.backend.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Per-user change counters for the product and customer lists. Every write to
+ * a list increments its counter in the same transaction, so the counter names
+ * one state of the list on every backend instance (see CatalogVersionService).
+ */
+@Entity
+@Table(name = "catalog_versions", uniqueConstraints = @UniqueConstraint(name = "uk_catalog_versions_user", columnNames = "user_id"))
+public class CatalogVersion {
+    @Id
+    @PooledSequence("catalog_versions_seq")
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "product_version", nullable = false)
+    private Long productVersion = 0L;
+
+    @Column(name = "customer_version", nullable = false)
+    private Long customerVersion = 0L;
+
+    // Constructors
+    public CatalogVersion() {}
+
+    public CatalogVersion(Long userId) {
+        this.userId = userId;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getProductVersion() {
+        return productVersion;
+    }
+
+    public void setProductVersion(Long productVersion) {
+        this.productVersion = productVersion;
+    }
+
+    public Long getCustomerVersion() {
+        return customerVersion;
+    }
+
+    public void setCustomerVersion(Long customerVersion) {
+        this.customerVersion = customerVersion;
+    }
+}
@@ -2,14 +2,19 @@ package com.webthanhtoan.backend.entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "customers")
+@Table(name = "customers", indexes = {
+        @Index(name = "idx_customers_user", columnList = "user_id"),
+        // Delta sync reads a user's customers in change order
+        @Index(name = "idx_customers_user_change", columnList = "user_id, change_seq")
+})
 public class Customer {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence("customers_seq")
     private Long id;
 
     @NotBlank
@@ -28,6 +33,11 @@ public class Customer {
     @Column(name = "is_active")
     private Boolean isActive = true;
 
+    // Owner's customer version of the last write to this row, see CatalogVersionService
+    @ColumnDefault("0")
+    @Column(name = "change_seq", nullable = false)
+    private Long changeSeq = 0L;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -115,6 +125,14 @@ public class Customer {
         this.updatedAt = updatedAt;
     }
 
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
     public User getUser() {
         return user;
     }
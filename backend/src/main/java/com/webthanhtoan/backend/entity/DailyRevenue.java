@@ -0,0 +1,127 @@
+package com.webthanhtoan.backend.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Invoice totals per user, business day, payment method and payment status.
+ * Kept up to date by the checkout transactions and repaired from the invoices
+ * table by DailyRevenueService, so revenue charts read one row per day.
+ */
+@Entity
+@Table(name = "daily_revenue",
+        uniqueConstraints = @UniqueConstraint(name = "uk_daily_revenue_key",
+                columnNames = {"user_id", "business_date", "payment_method", "payment_status"}))
+public class DailyRevenue {
+    @Id
+    @PooledSequence("daily_revenue_seq")
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+
+    @Column(name = "payment_method", nullable = false, length = 50)
+    private String paymentMethod;
+
+    @Column(name = "payment_status", nullable = false, length = 20)
+    private String paymentStatus;
+
+    @Column(name = "invoice_count", nullable = false)
+    private Long invoiceCount = 0L;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private Money revenue = Money.ZERO;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private Money subtotal = Money.ZERO;
+
+    // Constructors
+    public DailyRevenue() {}
+
+    public DailyRevenue(Long userId, LocalDate businessDate, String paymentMethod, String paymentStatus,
+                        Long invoiceCount, Money revenue, Money subtotal) {
+        this.userId = userId;
+        this.businessDate = businessDate;
+        this.paymentMethod = paymentMethod;
+        this.paymentStatus = paymentStatus;
+        this.invoiceCount = invoiceCount;
+        this.revenue = revenue;
+        this.subtotal = subtotal;
+    }
+
+    // Used by InvoiceRepository#rollUpDailyRevenue, where the sums arrive as BigDecimal
+    public DailyRevenue(Long userId, LocalDate businessDate, String paymentMethod, String paymentStatus,
+                        Long invoiceCount, BigDecimal revenue, BigDecimal subtotal) {
+        this(userId, businessDate, paymentMethod, paymentStatus, invoiceCount, Money.of(revenue), Money.of(subtotal));
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getBusinessDate() {
+        return businessDate;
+    }
+
+    public void setBusinessDate(LocalDate businessDate) {
+        this.businessDate = businessDate;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public void setPaymentMethod(String paymentMethod) {
+        this.paymentMethod = paymentMethod;
+    }
+
+    public String getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    public void setPaymentStatus(String paymentStatus) {
+        this.paymentStatus = paymentStatus;
+    }
+
+    public Long getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    public void setInvoiceCount(Long invoiceCount) {
+        this.invoiceCount = invoiceCount;
+    }
+
+    public Money getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(Money revenue) {
+        this.revenue = revenue;
+    }
+
+    public Money getSubtotal() {
+        return subtotal;
+    }
+
+    public void setSubtotal(Money subtotal) {
+        this.subtotal = subtotal;
+    }
+}
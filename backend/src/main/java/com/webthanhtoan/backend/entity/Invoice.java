@@ -10,17 +10,20 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "invoices")
+@Table(name = "invoices", indexes = {
+        @Index(name = "idx_invoices_user_created", columnList = "user_id, created_at"),
+        @Index(name = "idx_invoices_user_status_created", columnList = "user_id, payment_status, created_at")
+})
 public class Invoice {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence("invoices_seq")
     private Long id;
 
     @NotBlank
     @Column(name = "invoice_number", nullable = false, unique = true, length = 50)
     private String invoiceNumber;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
     private Customer customer;
 
@@ -31,16 +34,16 @@ public class Invoice {
     private User user;
 
     @Column(nullable = false, precision = 15, scale = 2)
-    private BigDecimal subtotal = BigDecimal.ZERO;
+    private Money subtotal = Money.ZERO;
 
     @Column(name = "discount_amount", nullable = false, precision = 15, scale = 2)
-    private BigDecimal discountAmount = BigDecimal.ZERO;
+    private Money discountAmount = Money.ZERO;
 
     @Column(name = "discount_percentage", nullable = false, precision = 5, scale = 2)
     private BigDecimal discountPercentage = BigDecimal.ZERO;
 
     @Column(name = "total_amount", nullable = false, precision = 15, scale = 2)
-    private BigDecimal totalAmount = BigDecimal.ZERO;
+    private Money totalAmount = Money.ZERO;
 
     @Column(name = "payment_method", nullable = false, length = 50)
     private String paymentMethod = "CASH";
@@ -106,19 +109,19 @@ public class Invoice {
         this.user = user;
     }
 
-    public BigDecimal getSubtotal() {
+    public Money getSubtotal() {
         return subtotal;
     }
 
-    public void setSubtotal(BigDecimal subtotal) {
+    public void setSubtotal(Money subtotal) {
         this.subtotal = subtotal;
     }
 
-    public BigDecimal getDiscountAmount() {
+    public Money getDiscountAmount() {
         return discountAmount;
     }
 
-    public void setDiscountAmount(BigDecimal discountAmount) {
+    public void setDiscountAmount(Money discountAmount) {
         this.discountAmount = discountAmount;
     }
 
@@ -130,11 +133,11 @@ public class Invoice {
         this.discountPercentage = discountPercentage;
     }
 
-    public BigDecimal getTotalAmount() {
+    public Money getTotalAmount() {
         return totalAmount;
     }
 
-    public void setTotalAmount(BigDecimal totalAmount) {
+    public void setTotalAmount(Money totalAmount) {
         this.totalAmount = totalAmount;
     }
 
@@ -188,7 +191,10 @@ public class Invoice {
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        // Set beforehand for sales booked later than they were made
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
         updatedAt = LocalDateTime.now();
     }
 
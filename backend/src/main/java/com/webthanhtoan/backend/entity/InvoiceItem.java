@@ -9,10 +9,14 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "invoice_items")
+@Table(name = "invoice_items", indexes = {
+        @Index(name = "idx_invoice_items_invoice", columnList = "invoice_id"),
+        // Covers the product sales report, which reads only these columns
+        @Index(name = "idx_invoice_items_sales", columnList = "invoice_id, product_id, quantity, total_price, cost_price")
+})
 public class InvoiceItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence("invoice_items_seq")
     private Long id;
 
     @JsonIgnore
@@ -22,7 +26,7 @@ public class InvoiceItem {
     private Invoice invoice;
 
     @NotNull
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
@@ -33,20 +37,20 @@ public class InvoiceItem {
 
     @NotNull
     @Column(name = "unit_price", nullable = false, precision = 10, scale = 2)
-    private BigDecimal unitPrice;
+    private Money unitPrice;
 
     @Column(name = "cost_price", precision = 10, scale = 2)
-    private BigDecimal costPrice;
+    private Money costPrice;
 
     @Column(name = "discount_amount", nullable = false, precision = 10, scale = 2)
-    private BigDecimal discountAmount = BigDecimal.ZERO;
+    private Money discountAmount = Money.ZERO;
 
     @Column(name = "discount_percentage", nullable = false, precision = 5, scale = 2)
     private BigDecimal discountPercentage = BigDecimal.ZERO;
 
     @NotNull
     @Column(name = "total_price", nullable = false, precision = 15, scale = 2)
-    private BigDecimal totalPrice;
+    private Money totalPrice;
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -54,13 +58,13 @@ public class InvoiceItem {
     // Constructors
     public InvoiceItem() {}
 
-    public InvoiceItem(Invoice invoice, Product product, Integer quantity, BigDecimal unitPrice, BigDecimal costPrice) {
+    public InvoiceItem(Invoice invoice, Product product, Integer quantity, Money unitPrice, Money costPrice) {
         this.invoice = invoice;
         this.product = product;
         this.quantity = quantity;
         this.unitPrice = unitPrice;
         this.costPrice = costPrice;
-        this.totalPrice = unitPrice.multiply(new BigDecimal(quantity));
+        this.totalPrice = unitPrice.times(quantity);
         this.createdAt = LocalDateTime.now();
     }
 
@@ -97,27 +101,27 @@ public class InvoiceItem {
         this.quantity = quantity;
     }
 
-    public BigDecimal getUnitPrice() {
+    public Money getUnitPrice() {
         return unitPrice;
     }
 
-    public void setUnitPrice(BigDecimal unitPrice) {
+    public void setUnitPrice(Money unitPrice) {
         this.unitPrice = unitPrice;
     }
 
-    public BigDecimal getCostPrice() {
+    public Money getCostPrice() {
         return costPrice;
     }
 
-    public void setCostPrice(BigDecimal costPrice) {
+    public void setCostPrice(Money costPrice) {
         this.costPrice = costPrice;
     }
 
-    public BigDecimal getDiscountAmount() {
+    public Money getDiscountAmount() {
         return discountAmount;
     }
 
-    public void setDiscountAmount(BigDecimal discountAmount) {
+    public void setDiscountAmount(Money discountAmount) {
         this.discountAmount = discountAmount;
     }
 
@@ -129,11 +133,11 @@ public class InvoiceItem {
         this.discountPercentage = discountPercentage;
     }
 
-    public BigDecimal getTotalPrice() {
+    public Money getTotalPrice() {
         return totalPrice;
     }
 
-    public void setTotalPrice(BigDecimal totalPrice) {
+    public void setTotalPrice(Money totalPrice) {
         this.totalPrice = totalPrice;
     }
 
@@ -0,0 +1,69 @@
+package com.webthanhtoan.backend.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Next free invoice sequence number per user and business day. Backend
+ * instances reserve blocks of numbers from this row and hand them out in memory.
+ */
+@Entity
+@Table(name = "invoice_number_counters",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "business_date"}))
+public class InvoiceNumberCounter {
+    @Id
+    @PooledSequence("invoice_number_counters_seq")
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    // Constructors
+    public InvoiceNumberCounter() {}
+
+    public InvoiceNumberCounter(Long userId, LocalDate businessDate, Long nextValue) {
+        this.userId = userId;
+        this.businessDate = businessDate;
+        this.nextValue = nextValue;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getBusinessDate() {
+        return businessDate;
+    }
+
+    public void setBusinessDate(LocalDate businessDate) {
+        this.businessDate = businessDate;
+    }
+
+    public Long getNextValue() {
+        return nextValue;
+    }
+
+    public void setNextValue(Long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
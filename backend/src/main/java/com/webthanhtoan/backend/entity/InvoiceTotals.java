@@ -0,0 +1,54 @@
+package com.webthanhtoan.backend.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * Subtotal and total of an invoice, rounded the way they always were: every
+ * line is stored rounded to the hundredth, but the subtotal is the sum of the
+ * unrounded lines and the total is computed from that sum, so an invoice is
+ * rounded once and not once per line.
+ *
+ * Add every line of the invoice, then read {@link #subtotal()} and
+ * {@link #total(Money, BigDecimal)}.
+ */
+public final class InvoiceTotals {
+
+    private static final BigDecimal HUNDRED_PERCENT = BigDecimal.valueOf(100);
+
+    private BigDecimal subtotal = BigDecimal.ZERO;
+
+    /**
+     * The line total to store on an invoice item.
+     */
+    public static Money lineTotal(InvoiceItem item) {
+        return Money.of(exactLineTotal(item));
+    }
+
+    public void add(InvoiceItem item) {
+        subtotal = subtotal.add(exactLineTotal(item));
+    }
+
+    public Money subtotal() {
+        return Money.of(subtotal);
+    }
+
+    public Money total(Money discountAmount, BigDecimal discountPercentage) {
+        return Money.of(discounted(subtotal, discountAmount, discountPercentage));
+    }
+
+    private static BigDecimal exactLineTotal(InvoiceItem item) {
+        BigDecimal amount = item.getUnitPrice().times(item.getQuantity()).toBigDecimal();
+        return discounted(amount, item.getDiscountAmount(), item.getDiscountPercentage());
+    }
+
+    /**
+     * Amount less the fixed discount, then less the percentage discount, unrounded.
+     */
+    private static BigDecimal discounted(BigDecimal amount, Money discountAmount, BigDecimal discountPercentage) {
+        BigDecimal total = amount.subtract(discountAmount.toBigDecimal());
+        if (discountPercentage.signum() > 0) {
+            total = total.multiply(HUNDRED_PERCENT.subtract(discountPercentage)).movePointLeft(2);
+        }
+        return total;
+    }
+}
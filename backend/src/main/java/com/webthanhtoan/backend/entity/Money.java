@@ -0,0 +1,118 @@
+package com.webthanhtoan.backend.entity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of VND, held as a whole number of hundredths of a đồng.
+ *
+ * Hundredths are the scale of every money column, so values map to the columns
+ * exactly (see {@link MoneyConverter}). Prices are whole đồng; the extra digits
+ * only carry the result of percentage discounts. Sums, differences and
+ * quantities are exact long arithmetic and fail on overflow instead of
+ * wrapping. Anything that rounds does so half up (away from zero) to the
+ * hundredth, as the database does when it stores a longer decimal.
+ *
+ * Serialized to JSON as a decimal number with two places, the same as the
+ * BigDecimal fields it replaces.
+ */
+public record Money(long hundredths) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private static final int SCALE = 2;
+
+    // Percentages are usually given with at most two decimals, i.e. in basis points
+    private static final long WHOLE_IN_BASIS_POINTS = 10_000;
+
+    private static final BigDecimal HUNDRED_PERCENT = BigDecimal.valueOf(100);
+
+    @JsonCreator
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        return new Money(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    public static Money orZero(BigDecimal amount) {
+        return amount == null ? ZERO : of(amount);
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(hundredths, other.hundredths));
+    }
+
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(hundredths, other.hundredths));
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(hundredths));
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(hundredths, quantity));
+    }
+
+    /**
+     * This amount split evenly {@code count} ways, e.g. an average order value.
+     */
+    public Money dividedBy(long count) {
+        return new Money(divideHalfUp(hundredths, count));
+    }
+
+    /**
+     * This amount less a percentage of it, e.g. {@code percentOff(12.5)} keeps
+     * 87.5%. The result is rounded once, so it matches rounding
+     * {@code amount - amount * percentage / 100} computed exactly.
+     */
+    public Money percentOff(BigDecimal percentage) {
+        if (percentage.signum() == 0) {
+            return this;
+        }
+        if (percentage.scale() <= SCALE) {
+            // Whole basis points, exact in long arithmetic
+            long basisPoints = percentage.movePointRight(SCALE).longValueExact();
+            long kept = Math.multiplyExact(hundredths, WHOLE_IN_BASIS_POINTS - basisPoints);
+            return new Money(divideHalfUp(kept, WHOLE_IN_BASIS_POINTS));
+        }
+        // A finer percentage is applied at full precision, never rounded to basis points first
+        return of(toBigDecimal().multiply(HUNDRED_PERCENT.subtract(percentage)).movePointLeft(SCALE));
+    }
+
+    public int signum() {
+        return Long.signum(hundredths);
+    }
+
+    public boolean isZero() {
+        return hundredths == 0;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(hundredths, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(hundredths, other.hundredths);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,52 @@
+package com.webthanhtoan.backend.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.lang.reflect.Member;
+import java.util.Properties;
+
+/**
+ * Sequence based id generator shared by all entities, applied with
+ * {@link PooledSequence}.
+ *
+ * Unlike IDENTITY columns, ids are known before the INSERT, so Hibernate can
+ * keep JDBC insert batching enabled. Each sequence call reserves a block of
+ * ids (pooled-lo optimizer, size set by {@value #ALLOCATION_SIZE_SETTING}), which
+ * works the same way on H2, PostgreSQL and SQL Server.
+ *
+ * Sequences created by Hibernate get the configured allocation size as their
+ * INCREMENT BY. An existing sequence keeps its own, so after changing the
+ * setting alter the sequences to match (db/manual/identity-to-sequence-*.sql
+ * take it as a variable); Hibernate refuses to start while they differ.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    // Passed to Hibernate as-is through spring.jpa.properties
+    public static final String ALLOCATION_SIZE_SETTING = "webthanhtoan.id.allocation_size";
+
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    private final String sequenceName;
+
+    public PooledSequenceGenerator(PooledSequence config, Member member, CustomIdGeneratorCreationContext context) {
+        this.sequenceName = config.value();
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        Integer allocationSize = serviceRegistry.requireService(ConfigurationService.class)
+                .getSetting(ALLOCATION_SIZE_SETTING, StandardConverters.INTEGER, DEFAULT_ALLOCATION_SIZE);
+
+        parameters.put(SEQUENCE_PARAM, sequenceName);
+        parameters.put(INCREMENT_PARAM, String.valueOf(allocationSize));
+        parameters.putIfAbsent(OPT_PARAM, "pooled-lo");
+
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
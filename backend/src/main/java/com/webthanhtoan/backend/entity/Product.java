@@ -5,21 +5,32 @@ import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+// Barcodes are unique among a user's active products through uk_products_user_barcode,
+// created by the migrations rather than here: JPA cannot declare a partial index
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_user_active", columnList = "user_id, is_active"),
+        // Delta sync reads a user's products in change order
+        @Index(name = "idx_products_user_change", columnList = "user_id, change_seq")
+})
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence("products_seq")
     private Long id;
 
     @NotBlank
     @Column(nullable = false, length = 255)
     private String name;
 
+    // SKU or barcode, unique among the owner's active products; scanned at checkout
+    @Column(length = 64)
+    private String barcode;
+
     @Column(length = 1000)
     private String description;
 
@@ -46,6 +57,11 @@ public class Product {
     @Column(name = "is_active")
     private Boolean isActive = true;
 
+    // Owner's product version of the last write to this row, see CatalogVersionService
+    @ColumnDefault("0")
+    @Column(name = "change_seq", nullable = false)
+    private Long changeSeq = 0L;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -80,6 +96,14 @@ public class Product {
         this.name = name;
     }
 
+    public String getBarcode() {
+        return barcode;
+    }
+
+    public void setBarcode(String barcode) {
+        this.barcode = barcode;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -136,6 +160,14 @@ public class Product {
         this.isActive = isActive;
     }
 
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
     public User getUser() {
         return user;
     }
@@ -0,0 +1,27 @@
+package com.webthanhtoan.backend.repository;
+
+import com.webthanhtoan.backend.dto.CatalogVersions;
+import com.webthanhtoan.backend.entity.CatalogVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CatalogVersionRepository extends JpaRepository<CatalogVersion, Long>, CatalogVersionRepositoryCustom {
+    @Modifying
+    @Query("UPDATE CatalogVersion v SET v.productVersion = v.productVersion + 1 WHERE v.userId = :userId")
+    int incrementProductVersion(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE CatalogVersion v SET v.customerVersion = v.customerVersion + 1 WHERE v.userId = :userId")
+    int incrementCustomerVersion(@Param("userId") Long userId);
+
+    // Projection, so a read after an increment never returns a stale managed entity
+    @Query("SELECT new com.webthanhtoan.backend.dto.CatalogVersions(v.productVersion, v.customerVersion)" +
+           " FROM CatalogVersion v WHERE v.userId = :userId")
+    Optional<CatalogVersions> findVersions(@Param("userId") Long userId);
+}
@@ -0,0 +1,10 @@
+package com.webthanhtoan.backend.repository;
+
+public interface CatalogVersionRepositoryCustom {
+    /**
+     * Inserts the user's row with zero versions unless it exists, in one statement
+     * on the caller's connection. A row inserted concurrently by another
+     * transaction is left alone instead of failing on the unique key.
+     */
+    void createIfMissing(Long userId);
+}
@@ -0,0 +1,33 @@
+package com.webthanhtoan.backend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class CatalogVersionRepositoryCustomImpl implements CatalogVersionRepositoryCustom {
+
+    private static final String ON_CONFLICT =
+            "INSERT INTO catalog_versions (id, user_id, product_version, customer_version)" +
+            " VALUES (:id, :userId, 0, 0) ON CONFLICT (user_id) DO NOTHING";
+
+    // HOLDLOCK keeps the key range locked between the match and the insert on SQL Server
+    private static final String MERGE =
+            "MERGE INTO catalog_versions%s AS v USING (VALUES (:userId)) AS s (user_id) ON v.user_id = s.user_id" +
+            " WHEN NOT MATCHED THEN INSERT (id, user_id, product_version, customer_version)" +
+            " VALUES (:id, s.user_id, 0, 0);";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void createIfMissing(Long userId) {
+        String sql = switch (NativeSql.vendor(entityManager)) {
+            case POSTGRESQL -> ON_CONFLICT;
+            case SQL_SERVER -> MERGE.formatted(" WITH (HOLDLOCK)");
+            case H2 -> MERGE.formatted("");
+        };
+        entityManager.createNativeQuery(sql)
+                .setParameter("id", NativeSql.nextId(entityManager, "catalog_versions_seq"))
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+}
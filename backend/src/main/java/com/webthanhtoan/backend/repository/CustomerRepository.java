@@ -1,7 +1,10 @@
 package com.webthanhtoan.backend.repository;
 
+import com.webthanhtoan.backend.dto.CustomerChange;
+import com.webthanhtoan.backend.dto.CustomerResponse;
 import com.webthanhtoan.backend.entity.Customer;
 import com.webthanhtoan.backend.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -18,11 +21,24 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     
     boolean existsByPhoneAndIsActiveTrue(String phone);
 
-    // Methods with user filter
-    List<Customer> findByUser(User user);
+    // Methods with user filter, projected straight into the response records
+    String SELECT_RESPONSE = "SELECT new com.webthanhtoan.backend.dto.CustomerResponse(c.id, c.name, c.phone, c.email," +
+            " c.address, c.createdAt, c.updatedAt) FROM Customer c";
+
+    // Deleted customers stay as inactive rows so delta sync can report them
+    @Query(SELECT_RESPONSE + " WHERE c.user = :user AND c.isActive = true")
+    List<CustomerResponse> findByUser(@Param("user") User user);
     
-    @Query("SELECT c FROM Customer c WHERE c.user = :user AND (c.name LIKE %:search% OR c.phone LIKE %:search%)")
-    List<Customer> findByUserAndSearch(@Param("user") User user, @Param("search") String search);
+    @Query(SELECT_RESPONSE + " WHERE c.user = :user AND c.isActive = true AND (c.name LIKE %:search% OR c.phone LIKE %:search%)")
+    List<CustomerResponse> findByUserAndSearch(@Param("user") User user, @Param("search") String search);
+
+    // Delta sync: active and deleted customers after a (changeSeq, id) position
+    @Query("SELECT new com.webthanhtoan.backend.dto.CustomerChange(c.changeSeq, c.isActive, c.id, c.name, c.phone," +
+           " c.email, c.address, c.createdAt, c.updatedAt) FROM Customer c" +
+           " WHERE c.user = :user AND (c.changeSeq > :changeSeq OR (c.changeSeq = :changeSeq AND c.id > :id))" +
+           " ORDER BY c.changeSeq, c.id")
+    List<CustomerChange> findChangesAfter(@Param("user") User user, @Param("changeSeq") long changeSeq,
+                                          @Param("id") long id, Limit limit);
     
     // Legacy methods (for backward compatibility)
     @Query("SELECT c FROM Customer c WHERE c.name LIKE %:search% OR c.phone LIKE %:search%")
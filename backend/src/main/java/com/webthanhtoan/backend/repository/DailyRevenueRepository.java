@@ -0,0 +1,70 @@
+package com.webthanhtoan.backend.repository;
+
+import com.webthanhtoan.backend.dto.DailyRevenuePoint;
+import com.webthanhtoan.backend.dto.RevenueTotals;
+import com.webthanhtoan.backend.dto.SalesTotals;
+import com.webthanhtoan.backend.entity.DailyRevenue;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyRevenueRepository extends JpaRepository<DailyRevenue, Long>, DailyRevenueRepositoryCustom {
+    // HQL does no arithmetic on Money attributes, so they are cast to the column type
+    @Modifying
+    @Query("UPDATE DailyRevenue d SET d.invoiceCount = d.invoiceCount + :invoiceCount," +
+           " d.revenue = CAST(d.revenue AS BigDecimal) + :revenue, d.subtotal = CAST(d.subtotal AS BigDecimal) + :subtotal" +
+           " WHERE d.userId = :userId AND d.businessDate = :businessDate" +
+           " AND d.paymentMethod = :paymentMethod AND d.paymentStatus = :paymentStatus")
+    int addTo(@Param("userId") Long userId, @Param("businessDate") LocalDate businessDate,
+              @Param("paymentMethod") String paymentMethod, @Param("paymentStatus") String paymentStatus,
+              @Param("invoiceCount") long invoiceCount, @Param("revenue") BigDecimal revenue,
+              @Param("subtotal") BigDecimal subtotal);
+
+    List<DailyRevenue> findByBusinessDateBetween(LocalDate startDate, LocalDate endDate);
+
+    // Repair: held until commit, so invoice writes wait to apply their deltas on top
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM DailyRevenue d WHERE d.businessDate BETWEEN :startDate AND :endDate")
+    List<DailyRevenue> lockByBusinessDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Revenue chart: one point per day with sales
+    @Query("SELECT new com.webthanhtoan.backend.dto.DailyRevenuePoint(d.businessDate, SUM(d.revenue))" +
+           " FROM DailyRevenue d WHERE d.userId = :userId AND d.businessDate BETWEEN :startDate AND :endDate" +
+           " AND d.invoiceCount > 0 GROUP BY d.businessDate ORDER BY d.businessDate")
+    List<DailyRevenuePoint> sumByDate(@Param("userId") Long userId,
+                                      @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Reports: one row per (status, method), totals are summed from these
+    @Query("SELECT new com.webthanhtoan.backend.dto.SalesTotals(d.paymentStatus, d.paymentMethod," +
+           " SUM(d.invoiceCount), SUM(d.revenue), SUM(d.subtotal))" +
+           " FROM DailyRevenue d WHERE d.userId = :userId AND d.businessDate BETWEEN :startDate AND :endDate" +
+           " AND d.invoiceCount > 0 GROUP BY d.paymentStatus, d.paymentMethod")
+    List<SalesTotals> sumByStatusAndMethod(@Param("userId") Long userId,
+                                           @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Revenue summary: all four periods from the days of [lastMonthStart, nextMonthStart)
+    @Query("SELECT new com.webthanhtoan.backend.dto.RevenueTotals(" +
+           " COALESCE(SUM(CASE WHEN d.businessDate = :today THEN d.revenue ELSE 0 END), 0)," +
+           " COALESCE(SUM(CASE WHEN d.businessDate = :yesterday THEN d.revenue ELSE 0 END), 0)," +
+           " COALESCE(SUM(CASE WHEN d.businessDate >= :monthStart THEN d.revenue ELSE 0 END), 0)," +
+           " COALESCE(SUM(CASE WHEN d.businessDate < :monthStart THEN d.revenue ELSE 0 END), 0)," +
+           " COALESCE(SUM(CASE WHEN d.businessDate = :today THEN d.invoiceCount ELSE 0 END), 0)," +
+           " COALESCE(SUM(CASE WHEN d.businessDate = :yesterday THEN d.invoiceCount ELSE 0 END), 0)," +
+           " COALESCE(SUM(CASE WHEN d.businessDate >= :monthStart THEN d.invoiceCount ELSE 0 END), 0)," +
+           " COALESCE(SUM(CASE WHEN d.businessDate < :monthStart THEN d.invoiceCount ELSE 0 END), 0))" +
+           " FROM DailyRevenue d WHERE d.userId = :userId" +
+           " AND d.businessDate >= :lastMonthStart AND d.businessDate < :nextMonthStart")
+    RevenueTotals sumRevenueSummary(@Param("userId") Long userId,
+                                    @Param("today") LocalDate today, @Param("yesterday") LocalDate yesterday,
+                                    @Param("monthStart") LocalDate monthStart,
+                                    @Param("lastMonthStart") LocalDate lastMonthStart, @Param("nextMonthStart") LocalDate nextMonthStart);
+}
@@ -0,0 +1,14 @@
+package com.webthanhtoan.backend.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public interface DailyRevenueRepositoryCustom {
+    /**
+     * Adds to a rollup row, creating it first when the key is new, in one upsert
+     * statement on the caller's connection. A row created concurrently by another
+     * transaction is added to instead of failing on the unique key.
+     */
+    void addOrCreate(Long userId, LocalDate businessDate, String paymentMethod, String paymentStatus,
+                     long invoiceCount, BigDecimal revenue, BigDecimal subtotal);
+}
@@ -0,0 +1,55 @@
+package com.webthanhtoan.backend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class DailyRevenueRepositoryCustomImpl implements DailyRevenueRepositoryCustom {
+
+    private static final String ON_CONFLICT =
+            "INSERT INTO daily_revenue (id, user_id, business_date, payment_method, payment_status," +
+            " invoice_count, revenue, subtotal)" +
+            " VALUES (:id, :userId, :businessDate, :paymentMethod, :paymentStatus, :invoiceCount, :revenue, :subtotal)" +
+            " ON CONFLICT (user_id, business_date, payment_method, payment_status) DO UPDATE SET" +
+            " invoice_count = daily_revenue.invoice_count + EXCLUDED.invoice_count," +
+            " revenue = daily_revenue.revenue + EXCLUDED.revenue, subtotal = daily_revenue.subtotal + EXCLUDED.subtotal";
+
+    // HOLDLOCK keeps the key range locked between the match and the insert on SQL Server
+    private static final String MERGE =
+            "MERGE INTO daily_revenue%s AS d" +
+            " USING (VALUES (:userId, :businessDate, :paymentMethod, :paymentStatus))" +
+            " AS s (user_id, business_date, payment_method, payment_status)" +
+            " ON d.user_id = s.user_id AND d.business_date = s.business_date" +
+            " AND d.payment_method = s.payment_method AND d.payment_status = s.payment_status" +
+            " WHEN MATCHED THEN UPDATE SET invoice_count = d.invoice_count + :invoiceCount," +
+            " revenue = d.revenue + :revenue, subtotal = d.subtotal + :subtotal" +
+            " WHEN NOT MATCHED THEN INSERT (id, user_id, business_date, payment_method, payment_status," +
+            " invoice_count, revenue, subtotal)" +
+            " VALUES (:id, s.user_id, s.business_date, s.payment_method, s.payment_status," +
+            " :invoiceCount, :revenue, :subtotal);";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void addOrCreate(Long userId, LocalDate businessDate, String paymentMethod, String paymentStatus,
+                            long invoiceCount, BigDecimal revenue, BigDecimal subtotal) {
+        String sql = switch (NativeSql.vendor(entityManager)) {
+            case POSTGRESQL -> ON_CONFLICT;
+            case SQL_SERVER -> MERGE.formatted(" WITH (HOLDLOCK)");
+            case H2 -> MERGE.formatted("");
+        };
+        entityManager.createNativeQuery(sql)
+                .setParameter("id", NativeSql.nextId(entityManager, "daily_revenue_seq"))
+                .setParameter("userId", userId)
+                .setParameter("businessDate", businessDate)
+                .setParameter("paymentMethod", paymentMethod)
+                .setParameter("paymentStatus", paymentStatus)
+                .setParameter("invoiceCount", invoiceCount)
+                .setParameter("revenue", revenue)
+                .setParameter("subtotal", subtotal)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,51 @@
+package com.webthanhtoan.backend.repository;
+
+import com.webthanhtoan.backend.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    /**
+     * Hands an IN_PROGRESS claim whose lease ran out to a new holder. Of several
+     * callers racing for the same claim only one gets a row count of 1.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.claimToken = :claimToken, r.leaseUntil = :leaseUntil, r.requestHash = :requestHash" +
+           " WHERE r.id = :id AND r.status = com.webthanhtoan.backend.entity.IdempotencyRecord.Status.IN_PROGRESS" +
+           " AND r.leaseUntil < :now")
+    int takeOver(@Param("id") Long id, @Param("claimToken") String claimToken, @Param("requestHash") String requestHash,
+                 @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+
+    /**
+     * Stores the response, unless the claim was taken over in the meantime (row count 0).
+     * Meant to run in the transaction of the request itself.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.status = com.webthanhtoan.backend.entity.IdempotencyRecord.Status.COMPLETED," +
+           " r.responseStatus = :responseStatus, r.responseBody = :responseBody, r.leaseUntil = NULL" +
+           " WHERE r.id = :id AND r.claimToken = :claimToken")
+    int complete(@Param("id") Long id, @Param("claimToken") String claimToken,
+                 @Param("responseStatus") int responseStatus, @Param("responseBody") String responseBody);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.claimToken = :claimToken")
+    int release(@Param("id") Long id, @Param("claimToken") String claimToken);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
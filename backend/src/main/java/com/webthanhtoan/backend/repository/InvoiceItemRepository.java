@@ -1,25 +1,64 @@
 package com.webthanhtoan.backend.repository;
 
+import com.webthanhtoan.backend.dto.InvoiceItemResponse;
+import com.webthanhtoan.backend.dto.ProductSales;
 import com.webthanhtoan.backend.entity.InvoiceItem;
+import com.webthanhtoan.backend.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface InvoiceItemRepository extends JpaRepository<InvoiceItem, Long> {
     List<InvoiceItem> findByInvoiceId(Long invoiceId);
+
+    @Query("SELECT new com.webthanhtoan.backend.dto.InvoiceItemResponse(ii.id, ii.quantity, ii.unitPrice, ii.costPrice," +
+           " ii.discountAmount, ii.discountPercentage, ii.totalPrice, p.id, p.name, p.description, p.price, p.costPrice, p.stock)" +
+           " FROM InvoiceItem ii LEFT JOIN ii.product p WHERE ii.invoice.id = :invoiceId ORDER BY ii.id")
+    List<InvoiceItemResponse> findResponsesByInvoiceId(@Param("invoiceId") Long invoiceId);
     
     @Modifying
     @Transactional
     @Query("DELETE FROM InvoiceItem ii WHERE ii.invoice.id = :invoiceId")
     void deleteByInvoiceId(@Param("invoiceId") Long invoiceId);
     
-    @Query("SELECT ii FROM InvoiceItem ii JOIN ii.invoice i WHERE i.paymentStatus = 'PAID' AND i.createdAt BETWEEN :startDate AND :endDate")
-    List<InvoiceItem> findPaidItemsBetweenDates(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    @Query("SELECT COALESCE(SUM(ii.quantity), 0) FROM InvoiceItem ii JOIN ii.invoice i" +
+           " WHERE i.user = :user AND i.createdAt BETWEEN :startDate AND :endDate AND i.paymentStatus IN :statuses")
+    Long sumQuantityByUser(@Param("user") User user,
+                           @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate,
+                           @Param("statuses") Collection<String> statuses);
+    
+    // Product sales report: one row per product, ranked by the Sort passed in (see ReportService).
+    // Money attributes are cast to BigDecimal where HQL has to multiply them.
+    String SUM_BY_PRODUCT = "SELECT new com.webthanhtoan.backend.dto.ProductSales(p.id, p.name, SUM(ii.quantity)," +
+            " SUM(ii.totalPrice), SUM(COALESCE(CAST(ii.costPrice AS BigDecimal), 0) * ii.quantity))" +
+            " FROM InvoiceItem ii JOIN ii.invoice i JOIN ii.product p" +
+            " WHERE i.user = :user AND i.paymentStatus = :status AND i.createdAt BETWEEN :startDate AND :endDate" +
+            " GROUP BY p.id, p.name";
+
+    @Query(SUM_BY_PRODUCT)
+    Slice<ProductSales> sumByProduct(@Param("user") User user, @Param("status") String status,
+                                     @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate,
+                                     Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = InvoiceRepository.EXPORT_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(SUM_BY_PRODUCT)
+    Stream<ProductSales> streamByProduct(@Param("user") User user, @Param("status") String status,
+                                         @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate,
+                                         Sort sort);
 } 
\ No newline at end of file
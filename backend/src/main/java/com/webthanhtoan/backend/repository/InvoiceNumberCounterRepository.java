@@ -0,0 +1,20 @@
+package com.webthanhtoan.backend.repository;
+
+import com.webthanhtoan.backend.entity.InvoiceNumberCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface InvoiceNumberCounterRepository extends JpaRepository<InvoiceNumberCounter, Long> {
+    @Modifying
+    @Query("UPDATE InvoiceNumberCounter c SET c.nextValue = c.nextValue + :blockSize WHERE c.userId = :userId AND c.businessDate = :businessDate")
+    int advance(@Param("userId") Long userId, @Param("businessDate") LocalDate businessDate, @Param("blockSize") long blockSize);
+
+    @Query("SELECT c.nextValue FROM InvoiceNumberCounter c WHERE c.userId = :userId AND c.businessDate = :businessDate")
+    Long findNextValue(@Param("userId") Long userId, @Param("businessDate") LocalDate businessDate);
+}
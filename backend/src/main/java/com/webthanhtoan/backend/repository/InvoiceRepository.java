@@ -1,30 +1,73 @@
 package com.webthanhtoan.backend.repository;
 
+import com.webthanhtoan.backend.dto.InvoiceResponse;
+import com.webthanhtoan.backend.entity.DailyRevenue;
 import com.webthanhtoan.backend.entity.Invoice;
 import com.webthanhtoan.backend.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
-    // Methods with user filter
-    List<Invoice> findByUserOrderByCreatedAtDesc(User user);
-    
-    List<Invoice> findByUserAndPaymentStatusOrderByCreatedAtDesc(User user, String paymentStatus);
-    
-    List<Invoice> findByUserAndCreatedAtBetweenOrderByCreatedAtDesc(User user, LocalDateTime startDate, LocalDateTime endDate);
-    
-    // New methods for revenue chart
-    List<Invoice> findByUserAndCreatedAtBetweenOrderByCreatedAtAsc(User user, LocalDateTime startDate, LocalDateTime endDate);
+    // List and detail views read this projection, customer included, in one statement
+    String SELECT_RESPONSE = "SELECT new com.webthanhtoan.backend.dto.InvoiceResponse(i.id, i.invoiceNumber, i.subtotal," +
+            " i.discountAmount, i.discountPercentage, i.totalAmount, i.paymentMethod, i.paymentStatus, i.notes, i.createdAt," +
+            " i.updatedAt, c.id, c.name, c.phone, c.email, c.address) FROM Invoice i LEFT JOIN i.customer c";
+
+    @Query(SELECT_RESPONSE + " WHERE i.id = :id AND i.user = :user")
+    Optional<InvoiceResponse> findResponseByIdAndUser(@Param("id") Long id, @Param("user") User user);
+
+    // Keyset pagination on (createdAt, id): the seek predicate replaces OFFSET
+    @Query(SELECT_RESPONSE + " WHERE i.user = :user AND i.createdAt BETWEEN :startDate AND :endDate" +
+           " AND (i.createdAt < :cursorCreatedAt OR (i.createdAt = :cursorCreatedAt AND i.id < :cursorId))" +
+           " ORDER BY i.createdAt DESC, i.id DESC")
+    List<InvoiceResponse> findPageByUser(@Param("user") User user,
+                                         @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate,
+                                         @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt, @Param("cursorId") Long cursorId,
+                                         Limit limit);
+
+    @Query(SELECT_RESPONSE + " WHERE i.user = :user AND i.paymentStatus = :status AND i.createdAt BETWEEN :startDate AND :endDate" +
+           " AND (i.createdAt < :cursorCreatedAt OR (i.createdAt = :cursorCreatedAt AND i.id < :cursorId))" +
+           " ORDER BY i.createdAt DESC, i.id DESC")
+    List<InvoiceResponse> findPageByUserAndPaymentStatus(@Param("user") User user, @Param("status") String status,
+                                                         @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate,
+                                                         @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt, @Param("cursorId") Long cursorId,
+                                                         Limit limit);
     
-    List<Invoice> findByUserAndCreatedAtBetween(User user, LocalDateTime startDate, LocalDateTime endDate);
+    // Export: forward-only cursor, rows are fetched from the driver EXPORT_FETCH_SIZE at a time
+    String EXPORT_FETCH_SIZE = "500";
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT i FROM Invoice i LEFT JOIN FETCH i.customer WHERE i.user = :user AND i.createdAt BETWEEN :startDate AND :endDate" +
+           " ORDER BY i.createdAt, i.id")
+    Stream<Invoice> streamForExport(@Param("user") User user,
+                                    @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT i FROM Invoice i LEFT JOIN FETCH i.customer WHERE i.user = :user AND i.paymentStatus = :status" +
+           " AND i.createdAt BETWEEN :startDate AND :endDate ORDER BY i.createdAt, i.id")
+    Stream<Invoice> streamForExportByPaymentStatus(@Param("user") User user, @Param("status") String status,
+                                                   @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
-    List<Invoice> findByUserAndCreatedAtBetweenAndPaymentStatusOrderByCreatedAtDesc(User user, LocalDateTime startDate, LocalDateTime endDate, String paymentStatus);
+    // Daily revenue rollup rebuilt from the invoices, see DailyRevenueService
+    @Query("SELECT new com.webthanhtoan.backend.entity.DailyRevenue(i.user.id, CAST(i.createdAt AS LocalDate)," +
+           " i.paymentMethod, i.paymentStatus, COUNT(i), SUM(i.totalAmount), SUM(i.subtotal))" +
+           " FROM Invoice i WHERE i.createdAt >= :startDate AND i.createdAt < :endDate" +
+           " GROUP BY i.user.id, CAST(i.createdAt AS LocalDate), i.paymentMethod, i.paymentStatus")
+    List<DailyRevenue> rollUpDailyRevenue(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
     // Legacy methods (for backward compatibility)
     List<Invoice> findByOrderByCreatedAtDesc();
@@ -0,0 +1,43 @@
+package com.webthanhtoan.backend.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * Helpers for the few native statements whose syntax differs between
+ * PostgreSQL, SQL Server and H2 (upserts).
+ */
+final class NativeSql {
+
+    enum Vendor {
+        POSTGRESQL, SQL_SERVER, H2
+    }
+
+    private NativeSql() {}
+
+    static Vendor vendor(EntityManager entityManager) {
+        Dialect dialect = dialect(entityManager);
+        if (dialect instanceof PostgreSQLDialect) {
+            return Vendor.POSTGRESQL;
+        }
+        return dialect instanceof SQLServerDialect ? Vendor.SQL_SERVER : Vendor.H2;
+    }
+
+    /**
+     * Next value of an entity's id sequence, for rows inserted by native SQL.
+     * Safe next to Hibernate's pooled-lo ids: the value is taken from the
+     * sequence, so Hibernate never hands out the block it starts.
+     */
+    static long nextId(EntityManager entityManager, String sequence) {
+        String sql = dialect(entityManager).getSequenceSupport().getSequenceNextValString(sequence);
+        return ((Number) entityManager.createNativeQuery(sql).getSingleResult()).longValue();
+    }
+
+    private static Dialect dialect(EntityManager entityManager) {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+    }
+}
@@ -1,26 +1,55 @@
 package com.webthanhtoan.backend.repository;
 
+import com.webthanhtoan.backend.dto.ProductChange;
+import com.webthanhtoan.backend.dto.ProductResponse;
 import com.webthanhtoan.backend.entity.Product;
 import com.webthanhtoan.backend.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     List<Product> findByIsActiveTrue();
     
-    // Methods with user filter
-    List<Product> findByUserAndIsActiveTrue(User user);
+    // Methods with user filter, projected straight into the response records
+    String SELECT_RESPONSE = "SELECT new com.webthanhtoan.backend.dto.ProductResponse(p.id, p.name, p.barcode, p.description," +
+            " p.costPrice, p.price, p.stock, p.isActive, p.createdAt, p.updatedAt) FROM Product p";
+
+    @Query(SELECT_RESPONSE + " WHERE p.user = :user AND p.isActive = true")
+    List<ProductResponse> findByUserAndIsActiveTrue(@Param("user") User user);
+    
+    @Query(SELECT_RESPONSE + " WHERE p.user = :user AND p.isActive = true AND p.name LIKE %:name%")
+    List<ProductResponse> findByUserAndNameContainingAndIsActiveTrue(@Param("user") User user, @Param("name") String name);
+    
+    // Pricing snapshot for checkout, active or not
+    @Query(SELECT_RESPONSE + " WHERE p.id IN :ids")
+    List<ProductResponse> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query(SELECT_RESPONSE + " WHERE p.user = :user AND p.isActive = true AND p.stock <= :threshold")
+    List<ProductResponse> findLowStockProductsByUser(@Param("user") User user, @Param("threshold") Integer threshold);
     
-    @Query("SELECT p FROM Product p WHERE p.user = :user AND p.isActive = true AND p.name LIKE %:name%")
-    List<Product> findByUserAndNameContainingAndIsActiveTrue(@Param("user") User user, @Param("name") String name);
+    // Not flushed first: the product being checked may already carry the duplicate
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("SELECT COUNT(p) > 0 FROM Product p WHERE p.user = :user AND p.barcode = :barcode" +
+           " AND p.isActive = true AND (:id IS NULL OR p.id <> :id)")
+    boolean existsOtherWithBarcode(@Param("user") User user, @Param("barcode") String barcode, @Param("id") Long id);
     
-    @Query("SELECT p FROM Product p WHERE p.user = :user AND p.isActive = true AND p.stock <= :threshold")
-    List<Product> findLowStockProductsByUser(@Param("user") User user, @Param("threshold") Integer threshold);
+    // Delta sync: active and deactivated products after a (changeSeq, id) position
+    @Query("SELECT new com.webthanhtoan.backend.dto.ProductChange(p.changeSeq, p.id, p.name, p.barcode, p.description," +
+           " p.costPrice, p.price, p.stock, p.isActive, p.createdAt, p.updatedAt) FROM Product p" +
+           " WHERE p.user = :user AND (p.changeSeq > :changeSeq OR (p.changeSeq = :changeSeq AND p.id > :id))" +
+           " ORDER BY p.changeSeq, p.id")
+    List<ProductChange> findChangesAfter(@Param("user") User user, @Param("changeSeq") long changeSeq,
+                                         @Param("id") long id, Limit limit);
     
     // Legacy methods (for backward compatibility)
     @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.name LIKE %:name%")
@@ -0,0 +1,26 @@
+package com.webthanhtoan.backend.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+    /**
+     * Subtracts the given quantities (product id -> quantity) in a single UPDATE
+     * per few hundred products. A row is only touched while its stock stays >= the
+     * requested quantity, so the returned row count is lower than
+     * {@code quantities.size()} when any product in the basket is short.
+     */
+    int decrementStock(Map<Long, Integer> quantities);
+
+    /**
+     * Adds the given quantities (product id -> quantity) back in a single UPDATE
+     * per few hundred products.
+     */
+    int incrementStock(Map<Long, Integer> quantities);
+
+    /**
+     * Labels products with the product version their change was committed under,
+     * for delta sync. Set after the stock UPDATEs, once that version is taken.
+     */
+    int setChangeSeq(Collection<Long> productIds, long changeSeq);
+}
@@ -0,0 +1,104 @@
+package com.webthanhtoan.backend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    /**
+     * Products per UPDATE. Each product binds its id three times and its quantity
+     * twice (5 * 400 + 2 parameters), which keeps a statement under SQL Server's
+     * limit of 2100 parameters.
+     */
+    static final int MAX_PRODUCTS_PER_UPDATE = 400;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int decrementStock(Map<Long, Integer> quantities) {
+        int updated = 0;
+        for (Map<Long, Integer> slice : slices(quantities)) {
+            String delta = quantityCase(slice.size());
+            Query query = entityManager.createQuery(
+                    "UPDATE Product p SET p.stock = p.stock - " + delta + ", p.updatedAt = :now" +
+                    " WHERE p.id IN :ids AND p.stock >= " + delta);
+            updated += bind(query, slice).executeUpdate();
+        }
+        return updated;
+    }
+
+    @Override
+    public int incrementStock(Map<Long, Integer> quantities) {
+        int updated = 0;
+        for (Map<Long, Integer> slice : slices(quantities)) {
+            Query query = entityManager.createQuery(
+                    "UPDATE Product p SET p.stock = p.stock + " + quantityCase(slice.size()) + ", p.updatedAt = :now" +
+                    " WHERE p.id IN :ids");
+            updated += bind(query, slice).executeUpdate();
+        }
+        return updated;
+    }
+
+    @Override
+    public int setChangeSeq(Collection<Long> productIds, long changeSeq) {
+        List<Long> ids = new ArrayList<>(productIds);
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += MAX_PRODUCTS_PER_UPDATE) {
+            updated += entityManager.createQuery("UPDATE Product p SET p.changeSeq = :changeSeq WHERE p.id IN :ids")
+                    .setParameter("changeSeq", changeSeq)
+                    .setParameter("ids", ids.subList(from, Math.min(from + MAX_PRODUCTS_PER_UPDATE, ids.size())))
+                    .executeUpdate();
+        }
+        return updated;
+    }
+
+    // Usually a single slice; a large bulk-ingest chunk is split, and all slices share the caller's transaction
+    private List<Map<Long, Integer>> slices(Map<Long, Integer> quantities) {
+        if (quantities.size() <= MAX_PRODUCTS_PER_UPDATE) {
+            return quantities.isEmpty() ? List.of() : List.of(quantities);
+        }
+        List<Map<Long, Integer>> slices = new ArrayList<>();
+        Map<Long, Integer> slice = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            slice.put(entry.getKey(), entry.getValue());
+            if (slice.size() == MAX_PRODUCTS_PER_UPDATE) {
+                slices.add(slice);
+                slice = new LinkedHashMap<>();
+            }
+        }
+        if (!slice.isEmpty()) {
+            slices.add(slice);
+        }
+        return slices;
+    }
+
+    // CASE p.id WHEN :id0 THEN :qty0 WHEN :id1 THEN :qty1 ... END
+    private String quantityCase(int size) {
+        StringBuilder sql = new StringBuilder("(CASE p.id");
+        for (int i = 0; i < size; i++) {
+            sql.append(" WHEN :id").append(i).append(" THEN :qty").append(i);
+        }
+        return sql.append(" ELSE 0 END)").toString();
+    }
+
+    private Query bind(Query query, Map<Long, Integer> quantities) {
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            query.setParameter("id" + i, entry.getKey());
+            query.setParameter("qty" + i, entry.getValue());
+            i++;
+        }
+        query.setParameter("ids", quantities.keySet());
+        query.setParameter("now", LocalDateTime.now());
+        return query;
+    }
+}
@@ -1,5 +1,7 @@
 package com.webthanhtoan.backend.security;
 
+import com.webthanhtoan.backend.entity.User;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,20 +11,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtils jwtUtils;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private UserAccountCache userAccountCache;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
@@ -31,28 +32,23 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            logger.info("=== JWT Filter Debug ===");
-            logger.info("Request URI: {}", request.getRequestURI());
-            logger.info("Request Method: {}", request.getMethod());
-            logger.info("Authorization Header: {}", request.getHeader("Authorization"));
-            logger.info("JWT Token: {}", jwt != null ? "Present (length: " + jwt.length() + ")" : "Missing");
-            
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-                logger.info("JWT Valid for user: {}", username);
+            logger.debug("Request {} {}, JWT token: {}", request.getMethod(), request.getRequestURI(),
+                    jwt != null ? "present (length: " + jwt.length() + ")" : "missing");
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Verified once here; the claims carry the username
+            Optional<Claims> claims = jwt != null ? jwtUtils.validateJwtToken(jwt) : Optional.empty();
+            User user = claims.isPresent() ? principalOf(claims.get()) : null;
+            if (user != null && user.isEnabled()) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
+                        user, null, user.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-                logger.info("Authentication set successfully for user: {}", username);
-            } else {
-                logger.warn("JWT validation failed or missing for URI: {}", request.getRequestURI());
-                if (jwt != null) {
-                    logger.warn("JWT token preview: {}...", jwt.substring(0, Math.min(50, jwt.length())));
-                }
+                logger.debug("Authentication set for user: {}", user.getUsername());
+            } else if (user != null) {
+                logger.warn("Deactivated user {} rejected for URI: {}", user.getUsername(), request.getRequestURI());
+            } else if (jwt != null) {
+                logger.warn("JWT validation failed for URI: {}", request.getRequestURI());
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication for URI {}: {}", request.getRequestURI(), e.getMessage());
@@ -62,6 +58,28 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * The user a verified token stands for. Built from the claims when they
+     * carry the id and role and the user has not changed since the token was
+     * issued, which costs at most a cached read of the user's change time;
+     * otherwise loaded through the {@link UserAccountCache}.
+     */
+    private User principalOf(Claims claims) {
+        Long userId = claims.get(JwtUtils.USER_ID_CLAIM, Long.class);
+        String role = claims.get(JwtUtils.ROLE_CLAIM, String.class);
+        if (userId == null || role == null || userAccountCache.changedSince(userId, claims.getIssuedAt())) {
+            return userAccountCache.load(claims.getSubject());
+        }
+
+        // Detached stand-in for the users row: enough for ownership checks and
+        // as a reference in queries and new rows, nothing else is set
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(claims.getSubject());
+        user.setRole(User.Role.valueOf(role));
+        return user;
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
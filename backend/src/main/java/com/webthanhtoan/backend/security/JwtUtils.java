@@ -1,60 +1,97 @@
 package com.webthanhtoan.backend.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.webthanhtoan.backend.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Issues and verifies the HS256 tokens of the API.
+ *
+ * The key and the parser are built once; the parser is immutable and shared by
+ * all requests. Verified tokens are remembered by their SHA-256 hash until they
+ * expire ({@code jwt.verified-cache-size} at most), so a client sending the
+ * same token on every request has its signature checked and claims parsed once.
+ *
+ * Tokens carry the user id and role next to the username, so requests can be
+ * authenticated from the claims without loading the user.
+ */
 @Component
 public class JwtUtils {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    public static final String USER_ID_CLAIM = "uid";
 
-    @Value("${jwt.expiration}")
-    private int jwtExpirationMs;
+    public static final String ROLE_CLAIM = "role";
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    private final SecretKey signingKey;
+
+    private final JwtParser parser;
+
+    private final int jwtExpirationMs;
+
+    // Keyed by token hash, so the cache holds no usable tokens
+    private final Cache<ByteBuffer, Claims> verified;
+
+    public JwtUtils(@Value("${jwt.secret}") String jwtSecret,
+                    @Value("${jwt.expiration}") int jwtExpirationMs,
+                    @Value("${jwt.verified-cache-size:10000}") long verifiedCacheSize) {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
     }
 
     public String generateJwtToken(Authentication authentication) {
-        UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
+        User user = (User) authentication.getPrincipal();
 
         return Jwts.builder()
-                .subject(userPrincipal.getUsername())
+                .subject(user.getUsername())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLE_CLAIM, user.getRole().name())
                 .issuedAt(new Date())
                 .expiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), Jwts.SIG.HS256)
+                .signWith(signingKey, Jwts.SIG.HS256)
                 .compact();
     }
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
-    }
+    /**
+     * Claims of the token if it is signed with our key and not expired.
+     */
+    public Optional<Claims> validateJwtToken(String authToken) {
+        ByteBuffer hash = hash(authToken);
+        Claims claims = verified.getIfPresent(hash);
+        if (claims != null) {
+            return Optional.of(claims);
+        }
 
-    public boolean validateJwtToken(String authToken) {
         try {
-            logger.info("Validating JWT token...");
-            Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(authToken);
-            logger.info("JWT token validation successful");
-            return true;
+            claims = parser.parseSignedClaims(authToken).getPayload();
+            // Tokens without an expiry are not issued here; don't keep them either
+            if (claims.getExpiration() != null) {
+                verified.put(hash, claims);
+            }
+            logger.debug("JWT token validation successful");
+            return Optional.of(claims);
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -67,6 +104,33 @@ public class JwtUtils {
             logger.error("JWT validation failed with unexpected error: {}", e.getMessage());
         }
 
-        return false;
+        return Optional.empty();
+    }
+
+    private static ByteBuffer hash(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Keeps a verified token exactly until its exp claim
+    private static final class UntilTokenExpiry implements Expiry<ByteBuffer, Claims> {
+        @Override
+        public long expireAfterCreate(ByteBuffer hash, Claims claims, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer hash, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(hash, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer hash, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package com.webthanhtoan.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Users for the tokens whose claims can't be trusted alone: tokens issued
+ * before they carried the user id and role, and tokens of a user changed
+ * since they were issued.
+ *
+ * A user's last change is users.updated_at, which every update through JPA
+ * sets, so it is shared by all backend instances and survives restarts. It is
+ * read per user and reused for {@code auth.user-change.ttl}: a change made
+ * through another instance reaches tokens issued before it within that time,
+ * one made through this instance at once (see {@link UserChangeListener}).
+ * Changes made with plain SQL have to set updated_at as well.
+ *
+ * Loaded users are cached by username for {@code auth.user-cache.ttl} and
+ * reloaded sooner when the user changed since the cached copy was read.
+ */
+@Component
+public class UserAccountCache {
+
+    private final Cache<String, User> usersByName;
+
+    // User id -> users.updated_at; empty for a deleted user
+    private final Cache<Long, Optional<LocalDateTime>> changedAt;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public UserAccountCache(@Value("${auth.user-cache.ttl:PT1M}") Duration ttl,
+                            @Value("${auth.user-cache.size:10000}") long size,
+                            @Value("${auth.user-change.ttl:PT5S}") Duration changeTtl) {
+        this.usersByName = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(ttl)
+                .build();
+        this.changedAt = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(changeTtl)
+                .build();
+    }
+
+    /**
+     * @throws UsernameNotFoundException if there is no such user
+     */
+    public User load(String username) {
+        User user = usersByName.get(username, this::find);
+        Optional<LocalDateTime> changed = changedAt(user.getId());
+        // Compared for equality, both come from the database, so instance clocks don't matter
+        if (!changed.equals(Optional.ofNullable(user.getUpdatedAt()))) {
+            // Changed or deleted since it was cached, possibly through another instance
+            usersByName.invalidate(username);
+            user = usersByName.get(username, this::find);
+        }
+        return user;
+    }
+
+    /**
+     * Whether the user changed at or after {@code issuedAt} (second precision,
+     * as in tokens), so a token issued then may carry outdated claims. A deleted
+     * user counts as changed.
+     */
+    public boolean changedSince(Long userId, Date issuedAt) {
+        Optional<LocalDateTime> changed = changedAt(userId);
+        if (changed.isEmpty() || issuedAt == null) {
+            return true;
+        }
+        return !changed.get().atZone(ZoneId.systemDefault()).toInstant().isBefore(issuedAt.toInstant());
+    }
+
+    /**
+     * Call once a change to the user (role, deactivation, anything) committed.
+     * The change time is read back rather than taken from the entity, so it
+     * has the precision of the column on every instance.
+     */
+    public void userChanged(User user) {
+        changedAt.invalidate(user.getId());
+        usersByName.invalidate(user.getUsername());
+    }
+
+    private Optional<LocalDateTime> changedAt(Long userId) {
+        return changedAt.get(userId, userRepository::findUpdatedAtById);
+    }
+
+    private User find(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User Not Found: " + username));
+    }
+}
@@ -0,0 +1,36 @@
+package com.webthanhtoan.backend.security;
+
+import com.webthanhtoan.backend.entity.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tells the {@link UserAccountCache} about every updated or deleted user, once
+ * the change committed, so tokens issued before it stop being trusted alone.
+ * Instantiated by Hibernate through Spring.
+ */
+public class UserChangeListener {
+
+    // Looked up on use: the cache needs the repositories, which need this listener's entity manager
+    @Autowired
+    private ObjectProvider<UserAccountCache> userAccountCache;
+
+    @PostUpdate
+    @PostRemove
+    public void userChanged(User user) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userAccountCache.getObject().userChanged(user);
+                }
+            });
+        } else {
+            userAccountCache.getObject().userChanged(user);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.webthanhtoan.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.webthanhtoan.backend.dto.BulkInvoiceResult;
+import com.webthanhtoan.backend.dto.CreateInvoiceRequest;
+import com.webthanhtoan.backend.dto.InvoiceResponse;
+import com.webthanhtoan.backend.entity.User;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Books sales pushed by a till that was offline, read from an NDJSON body (one
+ * CreateInvoiceRequest per line).
+ *
+ * Lines are parsed one at a time and booked in chunks through
+ * {@link CheckoutService#ingest}, so memory stays flat regardless of how many
+ * sales are sent and each chunk holds a pooled connection only for one short
+ * transaction. Lines longer than {@code invoice.bulk.max-line-length} are
+ * rejected without being kept. One result line per record is written and
+ * flushed after every chunk.
+ *
+ * Every record carries the till's clientSaleId, used as its idempotency key
+ * (see {@link IdempotencyService#executeAll}): a till that resends its sales
+ * after losing the connection gets the invoices booked the first time back,
+ * and stock is only taken once.
+ */
+@Service
+public class BulkInvoiceIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkInvoiceIngestService.class);
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private InvoiceNumberAllocator invoiceNumberAllocator;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectReader requestReader;
+
+    private final ObjectWriter resultWriter;
+
+    @Value("${invoice.bulk.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${invoice.bulk.max-line-length:65536}")
+    private int maxLineLength;
+
+    @Autowired
+    public BulkInvoiceIngestService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.requestReader = objectMapper.readerFor(CreateInvoiceRequest.class);
+        this.resultWriter = objectMapper.writerFor(BulkInvoiceResult.class);
+    }
+
+    public void ingest(InputStream body, OutputStream out, User currentUser) throws IOException {
+        LineReader reader = new LineReader(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)), maxLineLength);
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+
+        List<Long> lines = new ArrayList<>(chunkSize);
+        List<CreateInvoiceRequest> requests = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+
+        while ((line = reader.next()) != null) {
+            lineNumber++;
+            if (reader.tooLong()) {
+                write(writer, BulkInvoiceResult.rejected(lineNumber, "Record longer than " + maxLineLength + " characters"));
+                continue;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+
+            String error;
+            try {
+                CreateInvoiceRequest request = requestReader.readValue(line);
+                error = validate(request);
+                if (error == null) {
+                    lines.add(lineNumber);
+                    requests.add(request);
+                }
+            } catch (JsonProcessingException e) {
+                error = "Malformed JSON: " + e.getOriginalMessage();
+            }
+            if (error != null) {
+                write(writer, BulkInvoiceResult.rejected(lineNumber, error));
+            }
+
+            if (requests.size() == chunkSize) {
+                bookChunk(lines, requests, currentUser, writer);
+                lines.clear();
+                requests.clear();
+            }
+        }
+
+        if (!requests.isEmpty()) {
+            bookChunk(lines, requests, currentUser, writer);
+        }
+        writer.flush();
+    }
+
+    private void bookChunk(List<Long> lines, List<CreateInvoiceRequest> requests, User currentUser, Writer writer) throws IOException {
+        List<String> clientSaleIds = new ArrayList<>(requests.size());
+        for (CreateInvoiceRequest request : requests) {
+            clientSaleIds.add(request.getClientSaleId());
+        }
+
+        List<ResponseEntity<?>> responses = null;
+        String failure = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS && responses == null; attempt++) {
+            try {
+                responses = idempotencyService.executeAll(currentUser.getId(), clientSaleIds, requests,
+                        indexes -> book(indexes, requests, currentUser));
+            } catch (RuntimeException e) {
+                logger.warn("Bulk chunk of {} invoices failed (attempt {}): {}", requests.size(), attempt, e.getMessage());
+                failure = e.getMessage();
+            }
+        }
+
+        for (int i = 0; i < requests.size(); i++) {
+            if (responses == null) {
+                write(writer, BulkInvoiceResult.rejected(lines.get(i), "Error creating invoice: " + failure));
+            } else {
+                write(writer, resultOf(lines.get(i), responses.get(i)));
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Books the records of a chunk that were not booked before, in the
+     * transaction of {@link IdempotencyService#executeAll}.
+     */
+    private List<ResponseEntity<?>> book(List<Integer> indexes, List<CreateInvoiceRequest> requests, User currentUser) {
+        List<CreateInvoiceRequest> toBook = new ArrayList<>(indexes.size());
+        List<String> invoiceNumbers = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            toBook.add(requests.get(index));
+            invoiceNumbers.add(invoiceNumberAllocator.nextInvoiceNumber(currentUser.getId()));
+        }
+
+        List<ResponseEntity<?>> responses = new ArrayList<>(toBook.size());
+        for (CheckoutService.IngestOutcome outcome : checkoutService.ingest(toBook, invoiceNumbers, currentUser)) {
+            responses.add(outcome.invoice() != null
+                    ? ResponseEntity.ok(InvoiceResponse.from(outcome.invoice()))
+                    : ResponseEntity.unprocessableEntity().body(outcome.error()));
+        }
+        return responses;
+    }
+
+    private BulkInvoiceResult resultOf(long line, ResponseEntity<?> response) throws IOException {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return BulkInvoiceResult.rejected(line, String.valueOf(response.getBody()));
+        }
+        if (response.getBody() instanceof InvoiceResponse invoice) {
+            return BulkInvoiceResult.created(line, invoice.id(), invoice.invoiceNumber(), objectMapper.writeValueAsString(invoice));
+        }
+        // Replayed: the invoice as stored when the sale was first booked
+        String stored = (String) response.getBody();
+        JsonNode invoice = objectMapper.readTree(stored);
+        return BulkInvoiceResult.replayed(line, invoice.path("id").asLong(), invoice.path("invoiceNumber").asText(), stored);
+    }
+
+    private String validate(CreateInvoiceRequest request) {
+        Set<ConstraintViolation<CreateInvoiceRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<CreateInvoiceRequest> violation = violations.iterator().next();
+            return violation.getPropertyPath() + " " + violation.getMessage();
+        }
+        if (request.getClientSaleId() == null || request.getClientSaleId().isBlank()) {
+            return "clientSaleId is required";
+        }
+        if (request.getItems().isEmpty()) {
+            return "items must not be empty";
+        }
+        for (CreateInvoiceRequest.InvoiceItemRequest item : request.getItems()) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() < 1) {
+                return "every item needs a productId and a quantity of at least 1";
+            }
+        }
+        return null;
+    }
+
+    private void write(Writer writer, BulkInvoiceResult result) throws IOException {
+        writer.write(resultWriter.writeValueAsString(result));
+        writer.write('\n');
+    }
+
+    /**
+     * Reads lines of at most {@code maxLength} characters. A longer line is read
+     * to its end without being kept and reported by {@link #tooLong()}.
+     */
+    private static final class LineReader {
+
+        private final Reader reader;
+
+        private final int maxLength;
+
+        private final StringBuilder line = new StringBuilder();
+
+        private boolean tooLong;
+
+        LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * The next line without its terminator (empty if it was too long), or
+         * null at the end of the body.
+         */
+        String next() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (c == '\n') {
+                    return current();
+                }
+                if (line.length() <= maxLength) {
+                    line.append((char) c);
+                } else {
+                    tooLong = true;
+                }
+            }
+            return line.length() > 0 || tooLong ? current() : null;
+        }
+
+        boolean tooLong() {
+            return tooLong;
+        }
+
+        private String current() {
+            if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+            tooLong |= line.length() > maxLength;
+            return tooLong ? "" : line.toString();
+        }
+    }
+}
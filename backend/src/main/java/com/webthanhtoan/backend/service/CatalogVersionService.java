@@ -0,0 +1,111 @@
+package com.webthanhtoan.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webthanhtoan.backend.dto.CatalogVersions;
+import com.webthanhtoan.backend.repository.CatalogVersionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.ToIntFunction;
+
+/**
+ * Per-user versions of the product and customer lists, used as their ETags.
+ *
+ * The versions live in catalog_versions and are incremented by every write to
+ * a list in the writing transaction (products also by stock changes), so all
+ * backend instances agree on which version names which data. Reads are served
+ * from memory: writes made by this instance update the copy when they commit,
+ * writes made by other instances are picked up once the copy expires
+ * ({@code catalog.version.ttl}). Until then polls may still get a 304.
+ *
+ * Read the version before reading the list it labels. A write committing in
+ * between then gives newer data under the older version, which the next poll
+ * replaces; data older than its version is never served.
+ */
+@Service
+public class CatalogVersionService {
+
+    // Revalidate on every use; the ETag makes that a 304 while nothing changed
+    public static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private final Cache<Long, CatalogVersions> versions;
+
+    @Autowired
+    private CatalogVersionRepository catalogVersionRepository;
+
+    @Autowired
+    public CatalogVersionService(@Value("${catalog.version.ttl:PT5S}") Duration ttl,
+                                 @Value("${catalog.version.cache-size:10000}") long cacheSize) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public long productVersion(Long userId) {
+        return versionsOf(userId).products();
+    }
+
+    public long customerVersion(Long userId) {
+        return versionsOf(userId).customers();
+    }
+
+    /**
+     * Increments the user's product version in the current transaction and
+     * returns the new version. Takes the row lock until commit.
+     */
+    public long productsChanged(Long userId) {
+        long version = increment(userId, catalogVersionRepository::incrementProductVersion).products();
+        afterCommit(() -> versions.asMap().computeIfPresent(userId, (id, cached) -> cached.withProducts(version)));
+        return version;
+    }
+
+    /**
+     * Increments the user's customer version in the current transaction and
+     * returns the new version. Takes the row lock until commit.
+     */
+    public long customersChanged(Long userId) {
+        long version = increment(userId, catalogVersionRepository::incrementCustomerVersion).customers();
+        afterCommit(() -> versions.asMap().computeIfPresent(userId, (id, cached) -> cached.withCustomers(version)));
+        return version;
+    }
+
+    /**
+     * Strong ETag of a user's list at a version. The user id is part of it so a
+     * browser shared by two users never revalidates one user's copy for the other.
+     */
+    public static String eTag(String list, Long userId, long version) {
+        return "\"" + list + "-" + userId + "-" + version + "\"";
+    }
+
+    private CatalogVersions versionsOf(Long userId) {
+        return versions.get(userId, id -> catalogVersionRepository.findVersions(id).orElse(CatalogVersions.INITIAL));
+    }
+
+    private CatalogVersions increment(Long userId, ToIntFunction<Long> increment) {
+        if (increment.applyAsInt(userId) == 0) {
+            // First write for this user
+            catalogVersionRepository.createIfMissing(userId);
+            if (increment.applyAsInt(userId) == 0) {
+                throw new IllegalStateException("Catalog version row missing for user " + userId);
+            }
+        }
+        return catalogVersionRepository.findVersions(userId)
+                .orElseThrow(() -> new IllegalStateException("Catalog version row missing for user " + userId));
+    }
+
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,495 @@
+package com.webthanhtoan.backend.service;
+
+import com.webthanhtoan.backend.dto.CreateInvoiceRequest;
+import com.webthanhtoan.backend.dto.ProductResponse;
+import com.webthanhtoan.backend.entity.Customer;
+import com.webthanhtoan.backend.entity.Invoice;
+import com.webthanhtoan.backend.entity.InvoiceItem;
+import com.webthanhtoan.backend.entity.InvoiceTotals;
+import com.webthanhtoan.backend.entity.Money;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.repository.CustomerRepository;
+import com.webthanhtoan.backend.repository.InvoiceItemRepository;
+import com.webthanhtoan.backend.repository.InvoiceRepository;
+import com.webthanhtoan.backend.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs a sale as a single unit of work: all products of the basket are looked
+ * up at once (from the cached catalog for new sales, see {@link ProductCatalogService},
+ * otherwise with one query), invoice lines are written with saveAll so Hibernate can send
+ * them as a JDBC batch, and stock is taken with one conditional UPDATE per basket
+ * instead of a read-modify-write on each product. Totals are rounded once per
+ * invoice, see {@link InvoiceTotals}. The daily revenue rollup and the
+ * user's product version are updated in the same transaction (see
+ * {@link DailyRevenueService} and {@link CatalogVersionService}); the new version
+ * is stamped on the products whose stock moved, so delta sync picks them up.
+ */
+@Service
+public class CheckoutService {
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceItemRepository invoiceItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DailyRevenueService dailyRevenueService;
+
+    @Autowired
+    private ProductCatalogService productCatalogService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Value("${invoice.sale-time.max-clock-skew:PT1M}")
+    private Duration maxClockSkew;
+
+    /**
+     * The invoice number is allocated by the caller (see {@link InvoiceNumberAllocator}).
+     *
+     * @throws IllegalArgumentException if the request's soldAt lies in the future
+     */
+    @Transactional
+    public Invoice checkout(CreateInvoiceRequest request, User currentUser, String invoiceNumber) {
+        // Get customer if provided
+        Customer customer = null;
+        if (request.getCustomerId() != null) {
+            customer = customerRepository.findById(request.getCustomerId()).orElse(null);
+        }
+
+        Invoice invoice = newInvoice(request, currentUser, customer, invoiceNumber, saleTime(request));
+
+        Map<Long, ProductResponse> products = catalogProducts(currentUser, request.getItems());
+
+        InvoiceTotals totals = new InvoiceTotals();
+        List<InvoiceItem> items = new ArrayList<>(request.getItems().size());
+
+        for (CreateInvoiceRequest.InvoiceItemRequest itemRequest : request.getItems()) {
+            InvoiceItem item = buildItem(invoice, requireProduct(products, itemRequest.getProductId()), itemRequest);
+            items.add(item);
+            totals.add(item);
+        }
+
+        Map<Long, Integer> quantities = quantitiesOf(request.getItems());
+        reserveStock(quantities, products);
+
+        invoice.setSubtotal(totals.subtotal());
+        invoice.setTotalAmount(totals.total(invoice.getDiscountAmount(), invoice.getDiscountPercentage()));
+
+        invoice = invoiceRepository.save(invoice);
+        invoiceItemRepository.saveAll(items);
+        dailyRevenueService.add(invoice);
+        stockChanged(currentUser.getId(), quantities.keySet());
+
+        return invoice;
+    }
+
+    /**
+     * Books a chunk of sales in one transaction: products and customers of the
+     * whole chunk are loaded with one query each, invoices and lines are inserted
+     * with saveAll, and stock is taken with one aggregated UPDATE for the chunk.
+     *
+     * Sales that reference unknown products, would oversell (checked against the
+     * stock loaded here, in order) or have a soldAt in the future are returned as
+     * rejected and the rest are booked, each on the day it was sold.
+     * If stock moved under us the UPDATE matches fewer rows and the chunk is rolled
+     * back with an exception so the caller can retry it.
+     */
+    @Transactional
+    public List<IngestOutcome> ingest(List<CreateInvoiceRequest> requests, List<String> invoiceNumbers, User currentUser) {
+        List<CreateInvoiceRequest.InvoiceItemRequest> allItems = new ArrayList<>();
+        Set<Long> customerIds = new LinkedHashSet<>();
+        for (CreateInvoiceRequest request : requests) {
+            allItems.addAll(request.getItems());
+            if (request.getCustomerId() != null) {
+                customerIds.add(request.getCustomerId());
+            }
+        }
+
+        Map<Long, ProductResponse> products = loadProducts(allItems);
+        Map<Long, Customer> customers = new HashMap<>();
+        for (Customer customer : customerRepository.findAllById(customerIds)) {
+            customers.put(customer.getId(), customer);
+        }
+
+        Map<Long, Integer> available = new HashMap<>();
+        for (ProductResponse product : products.values()) {
+            available.put(product.id(), product.stock());
+        }
+
+        List<IngestOutcome> outcomes = new ArrayList<>(requests.size());
+        List<Invoice> invoices = new ArrayList<>();
+        List<InvoiceItem> items = new ArrayList<>();
+        Map<Long, Integer> chunkQuantities = new LinkedHashMap<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            CreateInvoiceRequest request = requests.get(i);
+            Map<Long, Integer> quantities = quantitiesOf(request.getItems());
+
+            LocalDateTime soldAt;
+            try {
+                soldAt = saleTime(request);
+            } catch (IllegalArgumentException e) {
+                outcomes.add(new IngestOutcome(null, e.getMessage()));
+                continue;
+            }
+
+            String error = null;
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                ProductResponse product = products.get(entry.getKey());
+                if (product == null) {
+                    error = "Product not found: " + entry.getKey();
+                    break;
+                }
+                if (available.get(entry.getKey()) < entry.getValue()) {
+                    error = "Insufficient stock for product: " + product.name();
+                    break;
+                }
+            }
+            if (error != null) {
+                outcomes.add(new IngestOutcome(null, error));
+                continue;
+            }
+
+            Invoice invoice = newInvoice(request, currentUser, customers.get(request.getCustomerId()), invoiceNumbers.get(i), soldAt);
+            InvoiceTotals totals = new InvoiceTotals();
+            for (CreateInvoiceRequest.InvoiceItemRequest itemRequest : request.getItems()) {
+                InvoiceItem item = buildItem(invoice, products.get(itemRequest.getProductId()), itemRequest);
+                items.add(item);
+                totals.add(item);
+            }
+            invoice.setSubtotal(totals.subtotal());
+            invoice.setTotalAmount(totals.total(invoice.getDiscountAmount(), invoice.getDiscountPercentage()));
+            invoices.add(invoice);
+
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                available.merge(entry.getKey(), -entry.getValue(), Integer::sum);
+                chunkQuantities.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+            outcomes.add(new IngestOutcome(invoice, null));
+        }
+
+        if (!invoices.isEmpty()) {
+            if (productRepository.decrementStock(chunkQuantities) != chunkQuantities.size()) {
+                throw new RuntimeException("Stock changed while booking the chunk");
+            }
+            invoiceRepository.saveAll(invoices);
+            invoiceItemRepository.saveAll(items);
+            dailyRevenueService.addAll(invoices);
+            stockChanged(currentUser.getId(), chunkQuantities.keySet());
+        }
+
+        return outcomes;
+    }
+
+    /**
+     * Result of one sale in {@link #ingest}: the booked invoice, or why it was rejected.
+     */
+    public record IngestOutcome(Invoice invoice, String error) {}
+
+    @Transactional
+    public Invoice updateInvoice(Long id, CreateInvoiceRequest request) {
+        Invoice existingInvoice = invoiceRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Invoice not found: " + id));
+        DailyRevenueService.Contribution before = DailyRevenueService.Contribution.of(existingInvoice);
+
+        // Get customer if provided
+        Customer customer = null;
+        if (request.getCustomerId() != null) {
+            customer = customerRepository.findById(request.getCustomerId()).orElse(null);
+        }
+
+        // Update invoice basic info
+        existingInvoice.setCustomer(customer);
+        existingInvoice.setPaymentMethod(request.getPaymentMethod().toUpperCase());
+        existingInvoice.setDiscountAmount(Money.orZero(request.getDiscountAmount()));
+        existingInvoice.setDiscountPercentage(request.getDiscountPercentage() != null ? request.getDiscountPercentage() : BigDecimal.ZERO);
+        existingInvoice.setNotes(request.getNotes());
+        existingInvoice.setUpdatedAt(LocalDateTime.now());
+
+        Map<Long, ProductResponse> products = loadProducts(request.getItems());
+
+        // Persisted lines per product, matched in order against the incoming lines
+        List<InvoiceItem> existingItems = invoiceItemRepository.findByInvoiceId(id);
+        Map<Long, Deque<InvoiceItem>> existingByProduct = new HashMap<>();
+        for (InvoiceItem item : existingItems) {
+            existingByProduct.computeIfAbsent(item.getProduct().getId(), k -> new ArrayDeque<>()).add(item);
+        }
+
+        // Net stock change per product: positive takes stock, negative gives it back
+        Map<Long, Integer> stockDelta = new LinkedHashMap<>();
+        for (InvoiceItem item : existingItems) {
+            stockDelta.merge(item.getProduct().getId(), -item.getQuantity(), Integer::sum);
+        }
+
+        InvoiceTotals totals = new InvoiceTotals();
+        List<InvoiceItem> newItems = new ArrayList<>();
+
+        for (CreateInvoiceRequest.InvoiceItemRequest itemRequest : request.getItems()) {
+            ProductResponse product = requireProduct(products, itemRequest.getProductId());
+            stockDelta.merge(product.id(), itemRequest.getQuantity(), Integer::sum);
+
+            Deque<InvoiceItem> candidates = existingByProduct.get(product.id());
+            InvoiceItem item = candidates != null ? candidates.pollFirst() : null;
+            if (item == null) {
+                item = buildItem(existingInvoice, product, itemRequest);
+                newItems.add(item);
+            } else {
+                // Managed entity: only written back if something actually changed
+                applyChanges(item, itemRequest);
+            }
+            totals.add(item);
+        }
+
+        List<InvoiceItem> removedItems = new ArrayList<>();
+        for (Deque<InvoiceItem> leftovers : existingByProduct.values()) {
+            removedItems.addAll(leftovers);
+        }
+
+        Map<Long, Integer> taken = new LinkedHashMap<>();
+        Map<Long, Integer> returned = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> entry : stockDelta.entrySet()) {
+            if (entry.getValue() > 0) {
+                taken.put(entry.getKey(), entry.getValue());
+            } else if (entry.getValue() < 0) {
+                returned.put(entry.getKey(), -entry.getValue());
+            }
+        }
+        if (!returned.isEmpty()) {
+            productRepository.incrementStock(returned);
+        }
+        if (!taken.isEmpty()) {
+            reserveStock(taken, products);
+        }
+
+        existingInvoice.setSubtotal(totals.subtotal());
+        existingInvoice.setTotalAmount(totals.total(existingInvoice.getDiscountAmount(), existingInvoice.getDiscountPercentage()));
+
+        existingInvoice = invoiceRepository.save(existingInvoice);
+        if (!removedItems.isEmpty()) {
+            invoiceItemRepository.deleteAllInBatch(removedItems);
+        }
+        invoiceItemRepository.saveAll(newItems);
+        dailyRevenueService.replace(before, DailyRevenueService.Contribution.of(existingInvoice));
+        if (!returned.isEmpty() || !taken.isEmpty()) {
+            stockChanged(existingInvoice.getUser().getId(), stockDelta.keySet());
+        }
+
+        return existingInvoice;
+    }
+
+    @Transactional
+    public void deleteInvoice(Long id) {
+        Invoice existingInvoice = invoiceRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Invoice not found: " + id));
+
+        // Restore stock from invoice items
+        List<InvoiceItem> existingItems = invoiceItemRepository.findByInvoiceId(id);
+        Map<Long, Integer> returned = quantitiesOfItems(existingItems);
+        productRepository.incrementStock(returned);
+
+        // Delete invoice items first
+        invoiceItemRepository.deleteByInvoiceId(id);
+
+        // Delete invoice
+        invoiceRepository.delete(existingInvoice);
+        dailyRevenueService.remove(DailyRevenueService.Contribution.of(existingInvoice));
+        if (!returned.isEmpty()) {
+            stockChanged(existingInvoice.getUser().getId(), returned.keySet());
+        }
+    }
+
+    /**
+     * Moves the owner's product version for a stock change and labels the
+     * products with it. The version row serializes every stock change of the
+     * user, so this is the transaction's last write: pending inserts are flushed
+     * first and the row stays locked only until the commit that follows. Product
+     * rows are always locked before the version row, here and in
+     * {@link ProductCatalogService#save}, so the two cannot deadlock.
+     */
+    private void stockChanged(Long userId, Collection<Long> productIds) {
+        productRepository.flush();
+        long changeSeq = catalogVersionService.productsChanged(userId);
+        productRepository.setChangeSeq(productIds, changeSeq);
+        productCatalogService.stockChanged(userId, productIds, changeSeq);
+    }
+
+    /**
+     * Takes the basket out of stock with one conditional UPDATE. If any product
+     * would go negative no row counts match and the whole sale is rolled back.
+     */
+    private void reserveStock(Map<Long, Integer> quantities, Map<Long, ProductResponse> products) {
+        int updated = productRepository.decrementStock(quantities);
+        if (updated == quantities.size()) {
+            return;
+        }
+
+        // Name the short products from the snapshot loaded for pricing
+        List<String> shortProducts = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            ProductResponse product = products.get(entry.getKey());
+            if (product.stock() < entry.getValue()) {
+                shortProducts.add(product.name());
+            }
+        }
+        if (shortProducts.isEmpty()) {
+            for (Long productId : quantities.keySet()) {
+                shortProducts.add(products.get(productId).name());
+            }
+        }
+        throw new RuntimeException("Insufficient stock for product: " + String.join(", ", shortProducts));
+    }
+
+    private Map<Long, Integer> quantitiesOf(List<CreateInvoiceRequest.InvoiceItemRequest> itemRequests) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CreateInvoiceRequest.InvoiceItemRequest itemRequest : itemRequests) {
+            quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private Map<Long, Integer> quantitiesOfItems(List<InvoiceItem> items) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (InvoiceItem item : items) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private ProductResponse requireProduct(Map<Long, ProductResponse> products, Long productId) {
+        ProductResponse product = products.get(productId);
+        if (product == null) {
+            throw new RuntimeException("Product not found: " + productId);
+        }
+        return product;
+    }
+
+    /**
+     * Looks up the basket in the user's cached catalog. Products that are not in
+     * it (inactive ones, for instance) are read with one query as before.
+     */
+    private Map<Long, ProductResponse> catalogProducts(User user, List<CreateInvoiceRequest.InvoiceItemRequest> itemRequests) {
+        Set<Long> productIds = productIdsOf(itemRequests);
+        Map<Long, ProductResponse> products = productCatalogService.findActive(user, productIds);
+        if (products.size() < productIds.size()) {
+            productIds.removeAll(products.keySet());
+            products.putAll(loadProducts(productIds));
+        }
+        return products;
+    }
+
+    /**
+     * Loads every product referenced by the basket with a single IN query.
+     */
+    private Map<Long, ProductResponse> loadProducts(List<CreateInvoiceRequest.InvoiceItemRequest> itemRequests) {
+        return loadProducts(productIdsOf(itemRequests));
+    }
+
+    private Map<Long, ProductResponse> loadProducts(Set<Long> productIds) {
+        Map<Long, ProductResponse> products = new HashMap<>();
+        for (ProductResponse product : productRepository.findResponsesByIdIn(productIds)) {
+            products.put(product.id(), product);
+        }
+        return products;
+    }
+
+    private Set<Long> productIdsOf(List<CreateInvoiceRequest.InvoiceItemRequest> itemRequests) {
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (CreateInvoiceRequest.InvoiceItemRequest itemRequest : itemRequests) {
+            productIds.add(itemRequest.getProductId());
+        }
+        return productIds;
+    }
+
+    /**
+     * When the sale was made: the till's soldAt for sales synced later, otherwise
+     * now. A soldAt ahead of this server by at most the allowed clock skew counts
+     * as now.
+     */
+    private LocalDateTime saleTime(CreateInvoiceRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime soldAt = request.getSoldAt();
+        if (soldAt == null || !soldAt.isAfter(now)) {
+            return soldAt != null ? soldAt : now;
+        }
+        if (soldAt.isAfter(now.plus(maxClockSkew))) {
+            throw new IllegalArgumentException("soldAt " + soldAt + " is in the future");
+        }
+        return now;
+    }
+
+    private Invoice newInvoice(CreateInvoiceRequest request, User currentUser, Customer customer, String invoiceNumber,
+                               LocalDateTime createdAt) {
+        Invoice invoice = new Invoice();
+        invoice.setCreatedAt(createdAt);
+        invoice.setInvoiceNumber(invoiceNumber);
+        invoice.setCustomer(customer);
+        invoice.setUser(currentUser);
+        invoice.setPaymentMethod(request.getPaymentMethod().toUpperCase());
+        invoice.setPaymentStatus("PAID");
+        invoice.setDiscountAmount(Money.orZero(request.getDiscountAmount()));
+        invoice.setDiscountPercentage(request.getDiscountPercentage() != null ? request.getDiscountPercentage() : BigDecimal.ZERO);
+        invoice.setNotes(request.getNotes());
+        return invoice;
+    }
+
+    private InvoiceItem buildItem(Invoice invoice, ProductResponse product, CreateInvoiceRequest.InvoiceItemRequest itemRequest) {
+        InvoiceItem item = new InvoiceItem();
+        item.setInvoice(invoice);
+        // Only the id is needed for the foreign key, so no product row is read
+        item.setProduct(productRepository.getReferenceById(product.id()));
+        item.setQuantity(itemRequest.getQuantity());
+        item.setUnitPrice(Money.of(product.price()));
+        item.setCostPrice(Money.of(product.costPrice()));
+        item.setDiscountAmount(Money.orZero(itemRequest.getDiscountAmount()));
+        item.setDiscountPercentage(itemRequest.getDiscountPercentage() != null ? itemRequest.getDiscountPercentage() : BigDecimal.ZERO);
+
+        item.setTotalPrice(InvoiceTotals.lineTotal(item));
+        return item;
+    }
+
+    /**
+     * Updates a persisted line in place. The line keeps the unit and cost price it
+     * was sold at; only quantity and discounts follow the request.
+     */
+    private void applyChanges(InvoiceItem item, CreateInvoiceRequest.InvoiceItemRequest itemRequest) {
+        Money discountAmount = Money.orZero(itemRequest.getDiscountAmount());
+        BigDecimal discountPercentage = itemRequest.getDiscountPercentage() != null ? itemRequest.getDiscountPercentage() : BigDecimal.ZERO;
+
+        if (item.getQuantity().equals(itemRequest.getQuantity())
+                && item.getDiscountAmount().equals(discountAmount)
+                && item.getDiscountPercentage().compareTo(discountPercentage) == 0) {
+            return;
+        }
+
+        item.setQuantity(itemRequest.getQuantity());
+        item.setDiscountAmount(discountAmount);
+        item.setDiscountPercentage(discountPercentage);
+        item.setTotalPrice(InvoiceTotals.lineTotal(item));
+    }
+}
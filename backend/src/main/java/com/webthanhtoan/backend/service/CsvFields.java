@@ -0,0 +1,41 @@
+package com.webthanhtoan.backend.service;
+
+import com.webthanhtoan.backend.entity.Money;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * Field writers shared by the CSV exports: each field is preceded by a comma and
+ * quoted per RFC 4180 only when it needs to be.
+ */
+final class CsvFields {
+
+    private CsvFields() {}
+
+    static void write(Writer csv, BigDecimal value) throws IOException {
+        csv.write(',');
+        if (value != null) {
+            csv.write(value.toPlainString());
+        }
+    }
+
+    static void write(Writer csv, Money value) throws IOException {
+        write(csv, value == null ? null : value.toBigDecimal());
+    }
+
+    static void write(Writer csv, String value) throws IOException {
+        csv.write(',');
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            csv.write(value);
+            return;
+        }
+        csv.write('"');
+        csv.write(value.replace("\"", "\"\""));
+        csv.write('"');
+    }
+}
@@ -0,0 +1,488 @@
+package com.webthanhtoan.backend.service;
+
+import com.webthanhtoan.backend.dto.CustomerResponse;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+
+/**
+ * Customer lookup by phone digits or by name, for the checkout search box.
+ *
+ * Phone numbers are kept as digits (see {@link SearchText#phoneDigits}) in two
+ * sorted arrays of packed keys: one with every whole number, one with every
+ * later suffix of it (a suffix array). A digit query is a binary search for
+ * the range of keys starting with it in each, so numbers starting with the
+ * digits come first, then numbers containing them further in, and the search
+ * stops once it has {@code limit} customers, however many customers there are.
+ *
+ * Names are folded (see {@link SearchText}) and every word is kept in a sorted
+ * array. Each query word is matched as a word prefix; the rarest query word
+ * gives the candidates, which are checked for the other words and ranked.
+ *
+ * Immutable: {@link #with} and {@link #without} return a changed copy. They
+ * find the customer's entries by binary search and copy the arrays around
+ * them, so a customer write does not rebuild the index.
+ */
+final class CustomerSearchIndex {
+
+    // A phone key holds the first KEY_DIGITS digits of a number (or suffix) in
+    // base 11, 0 marking the end, above a SLOT_BITS slot number. Numbers sort
+    // in key order as they do as strings.
+    private static final int KEY_DIGITS = 12;
+    private static final int BASE = 11;
+    private static final int SLOT_BITS = 22;
+    private static final int MAX_SLOTS = 1 << SLOT_BITS;
+    private static final long SLOT_MASK = MAX_SLOTS - 1;
+
+    // Name equals the query, name starts with it, every query word starts a word
+    private static final int EXACT = 0;
+    private static final int NAME_PREFIX = 1;
+    private static final int WORD_PREFIX = 2;
+
+    // By slot; a removed customer leaves an empty slot
+    private final CustomerResponse[] customers;
+    private final String[] phones;
+    private final String[] names;
+
+    // Customer ids ascending, with their slots
+    private final long[] ids;
+    private final int[] slotsById;
+
+    private final long[] numberKeys;
+    private final long[] suffixKeys;
+
+    // Distinct name words of each slot, ordered by word then slot
+    private final String[] words;
+    private final int[] wordSlots;
+
+    private CustomerSearchIndex(CustomerResponse[] customers, String[] phones, String[] names, long[] ids, int[] slotsById,
+                                long[] numberKeys, long[] suffixKeys, String[] words, int[] wordSlots) {
+        this.customers = customers;
+        this.phones = phones;
+        this.names = names;
+        this.ids = ids;
+        this.slotsById = slotsById;
+        this.numberKeys = numberKeys;
+        this.suffixKeys = suffixKeys;
+        this.words = words;
+        this.wordSlots = wordSlots;
+    }
+
+    static CustomerSearchIndex build(Collection<CustomerResponse> all) {
+        if (all.size() > MAX_SLOTS) {
+            throw new IllegalStateException("Too many customers to index: " + all.size());
+        }
+        int size = all.size();
+        CustomerResponse[] customers = all.toArray(new CustomerResponse[0]);
+        String[] phones = new String[size];
+        String[] names = new String[size];
+        long[] numberKeys = new long[size];
+        int numbers = 0;
+        int suffixes = 0;
+        int wordCount = 0;
+        for (int slot = 0; slot < size; slot++) {
+            phones[slot] = SearchText.phoneDigits(customers[slot].phone());
+            names[slot] = SearchText.fold(customers[slot].name());
+            if (!phones[slot].isEmpty()) {
+                numberKeys[numbers++] = key(phones[slot], 0, slot);
+                suffixes += phones[slot].length() - 1;
+            }
+            wordCount += SearchText.tokens(names[slot]).length;
+        }
+        numberKeys = Arrays.copyOf(numberKeys, numbers);
+        Arrays.sort(numberKeys);
+
+        long[] suffixKeys = new long[suffixes];
+        suffixes = 0;
+        for (int slot = 0; slot < size; slot++) {
+            long[] keys = suffixKeys(phones[slot], slot);
+            System.arraycopy(keys, 0, suffixKeys, suffixes, keys.length);
+            suffixes += keys.length;
+        }
+        suffixKeys = Arrays.copyOf(suffixKeys, suffixes);
+        Arrays.sort(suffixKeys);
+
+        // Ids are sorted through a permutation, carrying the slot along
+        Integer[] order = new Integer[size];
+        for (int slot = 0; slot < size; slot++) {
+            order[slot] = slot;
+        }
+        Arrays.sort(order, Comparator.comparingLong(slot -> customers[slot].id()));
+        long[] ids = new long[size];
+        int[] slotsById = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = customers[order[i]].id();
+            slotsById[i] = order[i];
+        }
+
+        // Words are few and repeat a lot, so they are sorted as (word number, slot) pairs
+        Map<String, Integer> wordNumbers = new HashMap<>();
+        for (int slot = 0; slot < size; slot++) {
+            for (String word : SearchText.tokens(names[slot])) {
+                wordNumbers.putIfAbsent(word, 0);
+            }
+        }
+        String[] vocabulary = wordNumbers.keySet().toArray(new String[0]);
+        Arrays.sort(vocabulary);
+        for (int i = 0; i < vocabulary.length; i++) {
+            wordNumbers.put(vocabulary[i], i);
+        }
+        long[] pairs = new long[wordCount];
+        wordCount = 0;
+        for (int slot = 0; slot < size; slot++) {
+            for (String word : nameWords(names[slot])) {
+                pairs[wordCount++] = (long) wordNumbers.get(word) << 32 | slot;
+            }
+        }
+        Arrays.sort(pairs, 0, wordCount);
+        String[] words = new String[wordCount];
+        int[] wordSlots = new int[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = vocabulary[(int) (pairs[i] >>> 32)];
+            wordSlots[i] = (int) pairs[i];
+        }
+
+        return new CustomerSearchIndex(customers, phones, names, ids, slotsById, numberKeys, suffixKeys, words, wordSlots);
+    }
+
+    /**
+     * Number of customers indexed.
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * This index with the customer added, or replaced if already present. Null
+     * when the index has run out of slots and has to be rebuilt.
+     */
+    CustomerSearchIndex with(CustomerResponse customer) {
+        int at = Arrays.binarySearch(ids, customer.id());
+        CustomerSearchIndex index = at >= 0 ? without(customer.id()) : this;
+        int slot = at >= 0 ? slotsById[at] : customers.length;
+        if (slot >= MAX_SLOTS) {
+            return null;
+        }
+        return index.withSlot(slot, customer);
+    }
+
+    /**
+     * This index without the customer.
+     */
+    CustomerSearchIndex without(Long customerId) {
+        int at = Arrays.binarySearch(ids, customerId);
+        if (at < 0) {
+            return this;
+        }
+        int slot = slotsById[at];
+
+        CustomerResponse[] newCustomers = customers.clone();
+        String[] newPhones = phones.clone();
+        String[] newNames = names.clone();
+        newCustomers[slot] = null;
+        newPhones[slot] = "";
+        newNames[slot] = "";
+
+        long[] newNumberKeys = numberKeys;
+        if (!phones[slot].isEmpty()) {
+            newNumberKeys = removeAt(numberKeys, new int[]{Arrays.binarySearch(numberKeys, key(phones[slot], 0, slot))}, long[]::new);
+        }
+        long[] removedSuffixes = suffixKeys(phones[slot], slot);
+        int[] suffixPositions = new int[removedSuffixes.length];
+        for (int i = 0; i < removedSuffixes.length; i++) {
+            suffixPositions[i] = Arrays.binarySearch(suffixKeys, removedSuffixes[i]);
+        }
+
+        String[] removedWords = nameWords(names[slot]);
+        int[] wordPositions = new int[removedWords.length];
+        for (int i = 0; i < removedWords.length; i++) {
+            wordPositions[i] = wordPosition(removedWords[i], slot);
+        }
+
+        return new CustomerSearchIndex(newCustomers, newPhones, newNames,
+                removeAt(ids, new int[]{at}, long[]::new), removeAt(slotsById, new int[]{at}, int[]::new),
+                newNumberKeys, removeAt(suffixKeys, suffixPositions, long[]::new),
+                removeAt(words, wordPositions, String[]::new), removeAt(wordSlots, wordPositions, int[]::new));
+    }
+
+    // Adds a customer not in the index at a free slot
+    private CustomerSearchIndex withSlot(int slot, CustomerResponse customer) {
+        int length = Math.max(customers.length, slot + 1);
+        CustomerResponse[] newCustomers = Arrays.copyOf(customers, length);
+        String[] newPhones = Arrays.copyOf(phones, length);
+        String[] newNames = Arrays.copyOf(names, length);
+        String phone = SearchText.phoneDigits(customer.phone());
+        String name = SearchText.fold(customer.name());
+        newCustomers[slot] = customer;
+        newPhones[slot] = phone;
+        newNames[slot] = name;
+
+        int idAt = -Arrays.binarySearch(ids, customer.id()) - 1;
+
+        long[] newNumberKeys = numberKeys;
+        if (!phone.isEmpty()) {
+            long number = key(phone, 0, slot);
+            newNumberKeys = insertAt(numberKeys, new int[]{-Arrays.binarySearch(numberKeys, number) - 1}, new long[]{number}, long[]::new);
+        }
+        long[] addedSuffixes = suffixKeys(phone, slot);
+        int[] suffixPositions = new int[addedSuffixes.length];
+        for (int i = 0; i < addedSuffixes.length; i++) {
+            suffixPositions[i] = -Arrays.binarySearch(suffixKeys, addedSuffixes[i]) - 1;
+        }
+
+        String[] addedWords = nameWords(name);
+        int[] addedSlots = new int[addedWords.length];
+        int[] wordPositions = new int[addedWords.length];
+        for (int i = 0; i < addedWords.length; i++) {
+            addedSlots[i] = slot;
+            wordPositions[i] = -wordPosition(addedWords[i], slot) - 1;
+        }
+
+        return new CustomerSearchIndex(newCustomers, newPhones, newNames,
+                insertAt(ids, new int[]{idAt}, new long[]{customer.id()}, long[]::new),
+                insertAt(slotsById, new int[]{idAt}, new int[]{slot}, int[]::new),
+                newNumberKeys, insertAt(suffixKeys, suffixPositions, addedSuffixes, long[]::new),
+                insertAt(words, wordPositions, addedWords, String[]::new),
+                insertAt(wordSlots, wordPositions, addedSlots, int[]::new));
+    }
+
+    /**
+     * Up to {@code limit} customers, in the order they were indexed.
+     */
+    List<CustomerResponse> first(int limit) {
+        List<CustomerResponse> found = new ArrayList<>(Math.min(limit, ids.length));
+        for (int slot = 0; slot < customers.length && found.size() < limit; slot++) {
+            if (customers[slot] != null) {
+                found.add(customers[slot]);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Up to {@code limit} customers matching the query, best first. A query of
+     * digits (and separators) searches phone numbers, anything else names.
+     */
+    List<CustomerResponse> search(String query, int limit) {
+        String folded = SearchText.fold(query);
+        if (folded.isEmpty()) {
+            return List.of();
+        }
+        if (folded.chars().allMatch(c -> c == ' ' || Character.isDigit(c))) {
+            return searchPhones(SearchText.phoneDigits(query), limit);
+        }
+        return searchNames(folded, limit);
+    }
+
+    private List<CustomerResponse> searchPhones(String digits, int limit) {
+        List<CustomerResponse> found = new ArrayList<>(Math.min(limit, 64));
+        BitSet seen = new BitSet();
+
+        // Numbers starting with the digits, the exact number first as it sorts first
+        int from = lowerBound(numberKeys, rangeStart(digits));
+        long end = rangeEnd(digits);
+        for (int i = from; i < numberKeys.length && numberKeys[i] <= end && found.size() < limit; i++) {
+            int slot = (int) (numberKeys[i] & SLOT_MASK);
+            if (phones[slot].startsWith(digits) && !seen.get(slot)) {
+                seen.set(slot);
+                found.add(customers[slot]);
+            }
+        }
+
+        // Then numbers with the digits further in
+        from = lowerBound(suffixKeys, rangeStart(digits));
+        for (int i = from; i < suffixKeys.length && suffixKeys[i] <= end && found.size() < limit; i++) {
+            int slot = (int) (suffixKeys[i] & SLOT_MASK);
+            if (!seen.get(slot) && phones[slot].contains(digits)) {
+                seen.set(slot);
+                found.add(customers[slot]);
+            }
+        }
+        return found;
+    }
+
+    private List<CustomerResponse> searchNames(String folded, int limit) {
+        String[] queryWords = SearchText.tokens(folded);
+
+        // Candidates come from the query word that starts the fewest name words
+        int from = 0;
+        int to = words.length;
+        for (String word : queryWords) {
+            int wordFrom = lowerBound(words, word);
+            int wordTo = lowerBound(words, word + Character.MAX_VALUE);
+            if (wordTo - wordFrom < to - from) {
+                from = wordFrom;
+                to = wordTo;
+            }
+        }
+
+        Comparator<Hit> order = Comparator.comparingLong(Hit::score)
+                .thenComparing(hit -> names[hit.slot()])
+                .thenComparingLong(hit -> customers[hit.slot()].id());
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, to - from) + 1, order.reversed());
+        for (int i = from; i < to; i++) {
+            // Words of a slot are distinct, so no slot comes up twice here
+            int slot = wordSlots[i];
+            String name = names[slot];
+            int rank = name.equals(folded) ? EXACT : name.startsWith(folded) ? NAME_PREFIX : WORD_PREFIX;
+            long score = (long) rank << 32 | name.length();
+            if (best.size() == limit && score > best.peek().score()) {
+                continue;
+            }
+            boolean all = true;
+            for (String word : queryWords) {
+                if (!SearchText.startsWord(name, word)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (!all) {
+                continue;
+            }
+            best.add(new Hit(slot, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        Hit[] hits = best.toArray(new Hit[0]);
+        Arrays.sort(hits, order);
+        List<CustomerResponse> found = new ArrayList<>(hits.length);
+        for (Hit hit : hits) {
+            found.add(customers[hit.slot()]);
+        }
+        return found;
+    }
+
+    // Position of (word, slot) in words, or -(insertion point) - 1 when absent
+    private int wordPosition(String word, int slot) {
+        int low = 0;
+        int high = words.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = words[middle].compareTo(word);
+            if (compared == 0) {
+                compared = Integer.compare(wordSlots[middle], slot);
+            }
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    private static String[] nameWords(String folded) {
+        return Arrays.stream(SearchText.tokens(folded)).distinct().sorted().toArray(String[]::new);
+    }
+
+    // Keys of every suffix after the first digit, sorted and distinct
+    private static long[] suffixKeys(String digits, int slot) {
+        if (digits.length() < 2) {
+            return new long[0];
+        }
+        long[] keys = new long[digits.length() - 1];
+        for (int offset = 1; offset < digits.length(); offset++) {
+            keys[offset - 1] = key(digits, offset, slot);
+        }
+        Arrays.sort(keys);
+        int distinct = 1;
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i] != keys[distinct - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return distinct == keys.length ? keys : Arrays.copyOf(keys, distinct);
+    }
+
+    private static long key(String digits, int offset, int slot) {
+        long value = 0;
+        for (int i = 0; i < KEY_DIGITS; i++) {
+            int at = offset + i;
+            value = value * BASE + (at < digits.length() ? digits.charAt(at) - '0' + 1 : 0);
+        }
+        return value << SLOT_BITS | slot;
+    }
+
+    // Smallest key of a number starting with the digits (first KEY_DIGITS of them)
+    private static long rangeStart(String digits) {
+        return key(digits.length() > KEY_DIGITS ? digits.substring(0, KEY_DIGITS) : digits, 0, 0);
+    }
+
+    // Largest key of a number starting with the digits (first KEY_DIGITS of them)
+    private static long rangeEnd(String digits) {
+        long value = 0;
+        for (int i = 0; i < KEY_DIGITS; i++) {
+            value = value * BASE + (i < digits.length() ? digits.charAt(i) - '0' + 1 : BASE - 1);
+        }
+        return value << SLOT_BITS | SLOT_MASK;
+    }
+
+    private static int lowerBound(long[] keys, long key) {
+        int at = Arrays.binarySearch(keys, key);
+        return at >= 0 ? at : -at - 1;
+    }
+
+    private static int lowerBound(String[] sorted, String key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Copy of an array without the elements at the given positions, in any order
+    private static <A> A removeAt(A array, int[] positions, IntFunction<A> newArray) {
+        int[] sorted = positions.clone();
+        Arrays.sort(sorted);
+        int length = Array.getLength(array);
+        A removed = newArray.apply(length - sorted.length);
+        int from = 0;
+        int to = 0;
+        for (int position : sorted) {
+            System.arraycopy(array, from, removed, to, position - from);
+            to += position - from;
+            from = position + 1;
+        }
+        System.arraycopy(array, from, removed, to, length - from);
+        return removed;
+    }
+
+    // Copy of an array with values[i] inserted before the element at positions[i];
+    // positions ascend, and values at the same position are in order
+    private static <A> A insertAt(A array, int[] positions, A values, IntFunction<A> newArray) {
+        int length = Array.getLength(array);
+        A inserted = newArray.apply(length + positions.length);
+        int from = 0;
+        int to = 0;
+        for (int i = 0; i < positions.length; i++) {
+            System.arraycopy(array, from, inserted, to, positions[i] - from);
+            to += positions[i] - from;
+            from = positions[i];
+            System.arraycopy(values, i, inserted, to++, 1);
+        }
+        System.arraycopy(array, from, inserted, to, length - from);
+        return inserted;
+    }
+
+    // Lower scores rank first: the rank, then the shorter name
+    private record Hit(int slot, long score) {}
+}
@@ -0,0 +1,111 @@
+package com.webthanhtoan.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webthanhtoan.backend.dto.CustomerResponse;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.repository.CustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * In-memory {@link CustomerSearchIndex} of each user's active customers, so
+ * the checkout customer lookup does not scan the customers table.
+ *
+ * Kept like the product catalog (see {@link ProductCatalogService}): loaded on
+ * first use and labelled with the user's customer version, dropped when it
+ * expires, is evicted for space or the version moves past it. Writes through
+ * {@link CustomerService} are applied to the cached index when nothing else
+ * changed since it was loaded.
+ *
+ * Hit, miss and eviction counts are published as the {@code cache.*} meters
+ * tagged {@code cache=customerSearch}.
+ */
+@Service
+public class CustomerSearchService {
+
+    private static final String CACHE_NAME = "customerSearch";
+
+    private final Cache<Long, Snapshot> indexes;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    public CustomerSearchService(@Value("${customer.search.max-customers:1000000}") long maxCustomers,
+                                 @Value("${customer.search.ttl:PT10M}") Duration ttl,
+                                 MeterRegistry meterRegistry) {
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(maxCustomers)
+                .weigher((Long userId, Snapshot snapshot) -> Math.max(1, snapshot.index().size()))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, indexes, CACHE_NAME);
+    }
+
+    /**
+     * Active customers matching the query, best first, at most {@code limit}.
+     * Digits match anywhere in the phone number, numbers starting with them
+     * first; words match the start of words of the name, ignoring case and
+     * accents. An empty query matches every customer.
+     */
+    public List<CustomerResponse> search(User user, String query, int limit) {
+        CustomerSearchIndex index = indexOf(user);
+        if (SearchText.fold(query).isEmpty()) {
+            // Matches everything, as LIKE '%%' did
+            return index.first(limit);
+        }
+        return index.search(query, limit);
+    }
+
+    /**
+     * Applies a customer write that produced {@code version} to the cached
+     * index. Call once the write has committed.
+     */
+    void written(Long userId, CustomerResponse customer, boolean active, long version) {
+        indexes.asMap().computeIfPresent(userId, (id, snapshot) -> snapshot.after(customer, active, version));
+    }
+
+    private CustomerSearchIndex indexOf(User user) {
+        // Read before loading, so an index is never labelled newer than its data
+        long version = catalogVersionService.customerVersion(user.getId());
+        Snapshot snapshot = indexes.get(user.getId(), userId -> load(user, version));
+        if (snapshot.version() < version) {
+            snapshot = indexes.asMap().compute(user.getId(), (userId, cached) ->
+                    cached != null && cached.version() >= version ? cached : load(user, version));
+        }
+        return snapshot.index();
+    }
+
+    private Snapshot load(User user, long version) {
+        return new Snapshot(version, CustomerSearchIndex.build(customerRepository.findByUser(user)));
+    }
+
+    private record Snapshot(long version, CustomerSearchIndex index) {
+
+        /**
+         * This snapshot after the write that produced {@code version}, or null
+         * (dropped) when it also missed other writes.
+         */
+        Snapshot after(CustomerResponse customer, boolean active, long version) {
+            if (this.version >= version) {
+                // Loaded after the write committed, so already has it
+                return this;
+            }
+            if (this.version != version - 1) {
+                return null;
+            }
+            CustomerSearchIndex changed = active ? index.with(customer) : index.without(customer.id());
+            return changed == null ? null : new Snapshot(version, changed);
+        }
+    }
+}
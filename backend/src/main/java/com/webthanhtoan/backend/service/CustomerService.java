@@ -0,0 +1,54 @@
+package com.webthanhtoan.backend.service;
+
+import com.webthanhtoan.backend.dto.CustomerResponse;
+import com.webthanhtoan.backend.entity.Customer;
+import com.webthanhtoan.backend.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Customer writes. Each one moves the owner's customer version in the same
+ * transaction (see {@link CatalogVersionService}) and stamps it on the row as
+ * its change sequence. Deleting only deactivates the row, so delta sync can
+ * tell clients to drop it. Committed writes are applied to the cached search
+ * index (see {@link CustomerSearchService}).
+ */
+@Service
+public class CustomerService {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private CustomerSearchService customerSearchService;
+
+    @Transactional
+    public Customer save(Customer customer) {
+        Long userId = customer.getUser().getId();
+        long version = catalogVersionService.customersChanged(userId);
+        customer.setChangeSeq(version);
+        Customer saved = customerRepository.save(customer);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // updatedAt is only set when the customer is flushed, so read it after commit
+                customerSearchService.written(userId, CustomerResponse.from(saved),
+                        Boolean.TRUE.equals(saved.getIsActive()), version);
+            }
+        });
+        return saved;
+    }
+
+    @Transactional
+    public void delete(Customer customer) {
+        customer.setIsActive(false);
+        save(customer);
+    }
+}
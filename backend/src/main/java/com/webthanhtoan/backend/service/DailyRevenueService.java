@@ -0,0 +1,222 @@
+package com.webthanhtoan.backend.service;
+
+import com.webthanhtoan.backend.entity.DailyRevenue;
+import com.webthanhtoan.backend.entity.Invoice;
+import com.webthanhtoan.backend.entity.Money;
+import com.webthanhtoan.backend.repository.DailyRevenueRepository;
+import com.webthanhtoan.backend.repository.InvoiceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the daily_revenue rollup.
+ *
+ * Invoice writes call {@link #add}, {@link #remove} or {@link #replace} inside
+ * their own transaction, so the rollup commits or rolls back with the invoice.
+ * Each call is a delta UPDATE on one row. The first time a (user, day, method,
+ * status) is seen the row is upserted instead, on the same connection, so
+ * concurrent first sales add to one row rather than failing on the unique key.
+ *
+ * {@link #repair} recomputes a date range from the invoices table and fixes rows
+ * that drifted. It runs nightly over the last closed days, and over the whole
+ * history at startup, before requests are served, when the rollup is still
+ * empty. It locks the rows it rewrites before reading the invoices, so invoice
+ * writes running meanwhile wait and apply their deltas on top of the repaired
+ * values, instead of being overwritten by them.
+ */
+@Service
+public class DailyRevenueService implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyRevenueService.class);
+
+    private static final LocalDate EARLIEST = LocalDate.of(1970, 1, 1);
+
+    @Autowired
+    private DailyRevenueRepository dailyRevenueRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    private final TransactionTemplate transaction;
+
+    @Value("${revenue.rollup.repair-days:7}")
+    private int repairDays;
+
+    @Autowired
+    public DailyRevenueService(PlatformTransactionManager transactionManager) {
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * What one invoice adds to the rollup. Taken before an update changes the
+     * invoice so the old share can be removed afterwards.
+     */
+    public record Contribution(Key key, Money revenue, Money subtotal) {
+        public static Contribution of(Invoice invoice) {
+            return new Contribution(
+                    new Key(invoice.getUser().getId(), invoice.getCreatedAt().toLocalDate(),
+                            invoice.getPaymentMethod(), invoice.getPaymentStatus()),
+                    invoice.getTotalAmount(), invoice.getSubtotal());
+        }
+    }
+
+    public record Key(Long userId, LocalDate businessDate, String paymentMethod, String paymentStatus) {}
+
+    public void add(Invoice invoice) {
+        Contribution contribution = Contribution.of(invoice);
+        apply(contribution.key(), 1, contribution.revenue(), contribution.subtotal());
+    }
+
+    /**
+     * Adds a chunk of invoices with one UPDATE per distinct key.
+     */
+    public void addAll(List<Invoice> invoices) {
+        Map<Key, Totals> totals = new LinkedHashMap<>();
+        for (Invoice invoice : invoices) {
+            Contribution contribution = Contribution.of(invoice);
+            totals.computeIfAbsent(contribution.key(), k -> new Totals()).add(contribution);
+        }
+        totals.forEach((key, sum) -> apply(key, sum.count, sum.revenue, sum.subtotal));
+    }
+
+    public void remove(Contribution contribution) {
+        apply(contribution.key(), -1, contribution.revenue().negate(), contribution.subtotal().negate());
+    }
+
+    public void replace(Contribution before, Contribution after) {
+        if (!before.key().equals(after.key())) {
+            remove(before);
+            apply(after.key(), 1, after.revenue(), after.subtotal());
+            return;
+        }
+        Money revenue = after.revenue().minus(before.revenue());
+        Money subtotal = after.subtotal().minus(before.subtotal());
+        if (!revenue.isZero() || !subtotal.isZero()) {
+            apply(after.key(), 0, revenue, subtotal);
+        }
+    }
+
+    @Scheduled(cron = "${revenue.rollup.repair-cron:0 30 3 * * *}")
+    public void repairRecentDays() {
+        // Today is still taking sales; only closed days are compared
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        repair(yesterday.minusDays(repairDays - 1L), yesterday);
+    }
+
+    /**
+     * Builds an empty rollup once all beans are ready (and the migrations have
+     * run), which is before the web server starts taking requests.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfillIfEmpty();
+    }
+
+    public void backfillIfEmpty() {
+        if (dailyRevenueRepository.count() == 0 && invoiceRepository.count() > 0) {
+            logger.info("Daily revenue rollup is empty, building it from the invoices");
+            repair(EARLIEST, LocalDate.now());
+        }
+    }
+
+    /**
+     * Recomputes the rollup rows of [startDate, endDate] from the invoices and
+     * writes only the rows that differ. Returns the number of rows changed.
+     */
+    public int repair(LocalDate startDate, LocalDate endDate) {
+        int changed = transaction.execute(status -> repairInTransaction(startDate, endDate));
+        if (changed > 0) {
+            logger.warn("Repaired {} daily revenue rows between {} and {}", changed, startDate, endDate);
+        }
+        return changed;
+    }
+
+    private int repairInTransaction(LocalDate startDate, LocalDate endDate) {
+        Map<Key, DailyRevenue> stored = new HashMap<>();
+        List<DailyRevenue> actualRows;
+        while (true) {
+            for (DailyRevenue row : dailyRevenueRepository.lockByBusinessDateBetween(startDate, endDate)) {
+                stored.put(keyOf(row), row);
+            }
+            // Read under the locks: invoices committed from here on add their deltas after us
+            actualRows = invoiceRepository.rollUpDailyRevenue(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+
+            // A missing row is created empty through the same upsert invoice writes
+            // use, then locked and compared like the others on the next pass
+            boolean missing = false;
+            for (DailyRevenue actual : actualRows) {
+                if (!stored.containsKey(keyOf(actual))) {
+                    dailyRevenueRepository.addOrCreate(actual.getUserId(), actual.getBusinessDate(),
+                            actual.getPaymentMethod(), actual.getPaymentStatus(), 0, BigDecimal.ZERO, BigDecimal.ZERO);
+                    missing = true;
+                }
+            }
+            if (!missing) {
+                break;
+            }
+        }
+
+        int changed = 0;
+        for (DailyRevenue actual : actualRows) {
+            DailyRevenue row = stored.remove(keyOf(actual));
+            if (!row.getInvoiceCount().equals(actual.getInvoiceCount())
+                    || !row.getRevenue().equals(actual.getRevenue())
+                    || !row.getSubtotal().equals(actual.getSubtotal())) {
+                // Managed entity, written back on commit
+                row.setInvoiceCount(actual.getInvoiceCount());
+                row.setRevenue(actual.getRevenue());
+                row.setSubtotal(actual.getSubtotal());
+                changed++;
+            }
+        }
+
+        // Keys with no invoices left
+        for (DailyRevenue row : stored.values()) {
+            if (row.getInvoiceCount() != 0 || !row.getRevenue().isZero() || !row.getSubtotal().isZero()) {
+                changed++;
+            }
+        }
+        dailyRevenueRepository.deleteAllInBatch(stored.values());
+        return changed;
+    }
+
+    private void apply(Key key, long invoiceCount, Money revenue, Money subtotal) {
+        // The row usually exists; the upsert is only needed for a new key
+        if (dailyRevenueRepository.addTo(key.userId(), key.businessDate(), key.paymentMethod(), key.paymentStatus(),
+                invoiceCount, revenue.toBigDecimal(), subtotal.toBigDecimal()) == 0) {
+            dailyRevenueRepository.addOrCreate(key.userId(), key.businessDate(), key.paymentMethod(), key.paymentStatus(),
+                    invoiceCount, revenue.toBigDecimal(), subtotal.toBigDecimal());
+        }
+    }
+
+    private Key keyOf(DailyRevenue row) {
+        return new Key(row.getUserId(), row.getBusinessDate(), row.getPaymentMethod(), row.getPaymentStatus());
+    }
+
+    private static final class Totals {
+        private long count;
+        private Money revenue = Money.ZERO;
+        private Money subtotal = Money.ZERO;
+
+        private void add(Contribution contribution) {
+            count++;
+            revenue = revenue.plus(contribution.revenue());
+            subtotal = subtotal.plus(contribution.subtotal());
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.webthanhtoan.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webthanhtoan.backend.entity.IdempotencyRecord;
+import com.webthanhtoan.backend.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per (user, Idempotency-Key).
+ *
+ * Successful responses are kept in a bounded in-memory cache and in the
+ * idempotency_keys table until they expire, and replayed as-is for retries.
+ * A retry that arrives while the first request is still running waits for it
+ * instead of running in parallel. Failed requests release their key so the
+ * client can try again.
+ *
+ * The request runs in one transaction with the write of its response, so the
+ * key is never left claimed by a request whose work committed. A claim that was
+ * never completed (backend stopped mid-request) is held under a lease of
+ * {@code idempotency.lease}, after which a retry takes it over and runs again.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private static final long IN_FLIGHT_WAIT_SECONDS = 60;
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final Cache<Key, StoredResponse> responses;
+
+    private final ConcurrentHashMap<Key, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final Duration ttl;
+
+    private final Duration lease;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public IdempotencyService(@Value("${idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${idempotency.lease:PT2M}") Duration lease,
+                              @Value("${idempotency.cache-size:10000}") long cacheSize,
+                              PlatformTransactionManager transactionManager) {
+        this.ttl = ttl;
+        this.lease = lease;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Runs {@code action} in a new transaction, unless the key was used before.
+     * The action reports failure with a non-2xx response; its transaction is then
+     * rolled back and the key released.
+     */
+    public ResponseEntity<?> execute(Long userId, String idempotencyKey, Object request, Supplier<ResponseEntity<?>> action) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(HEADER + " must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+
+        Key key = new Key(userId, idempotencyKey);
+        String requestHash = hash(request);
+
+        while (true) {
+            StoredResponse cached = responses.getIfPresent(key);
+            if (cached != null) {
+                return replay(cached, requestHash);
+            }
+
+            CompletableFuture<StoredResponse> execution = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(key, execution);
+            if (running != null) {
+                StoredResponse result = await(running);
+                if (result != null) {
+                    return replay(result, requestHash);
+                }
+                // The first attempt failed and released the key, try again
+                continue;
+            }
+
+            try {
+                Outcome outcome = executeOnce(key, requestHash, action);
+                execution.complete(outcome.stored());
+                return outcome.response();
+            } catch (RuntimeException e) {
+                execution.complete(null);
+                throw e;
+            } finally {
+                inFlight.remove(key, execution);
+            }
+        }
+    }
+
+    /**
+     * {@link #execute} for the records of a bulk request, one key per record.
+     * Records whose key was used before get the stored response (or a 409 while
+     * its first request is still running, which includes a key repeated within
+     * the batch). The rest are passed to {@code action} by index and run together
+     * in one new transaction; it returns one response per index, in order. A
+     * record with a non-2xx response releases its key, the others are stored.
+     *
+     * @return one response per record
+     */
+    public List<ResponseEntity<?>> executeAll(Long userId, List<String> idempotencyKeys, List<?> requests,
+                                              Function<List<Integer>, List<? extends ResponseEntity<?>>> action) {
+        List<ResponseEntity<?>> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<Integer> toRun = new ArrayList<>();
+        List<Key> keys = new ArrayList<>();
+        List<String> requestHashes = new ArrayList<>();
+        List<Claim> claims = new ArrayList<>();
+        Set<Key> seen = new HashSet<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            String idempotencyKey = idempotencyKeys.get(i);
+            if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+                results.set(i, ResponseEntity.badRequest().body("Idempotency key must be 1-" + MAX_KEY_LENGTH + " characters"));
+                continue;
+            }
+            Key key = new Key(userId, idempotencyKey);
+            String requestHash = hash(requests.get(i));
+            if (!seen.add(key)) {
+                results.set(i, stillProcessing());
+                continue;
+            }
+
+            StoredResponse cached = responses.getIfPresent(key);
+            if (cached != null) {
+                results.set(i, replay(cached, requestHash));
+                continue;
+            }
+            Optional<Claim> claimed = claim(key, requestHash);
+            if (claimed.isEmpty()) {
+                results.set(i, claimedElsewhere(key, requestHash));
+                continue;
+            }
+            toRun.add(i);
+            keys.add(key);
+            requestHashes.add(requestHash);
+            claims.add(claimed.get());
+        }
+        if (toRun.isEmpty()) {
+            return results;
+        }
+
+        List<StoredResponse> stored = new ArrayList<>(Collections.nCopies(toRun.size(), null));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<? extends ResponseEntity<?>> actionResponses = action.apply(toRun);
+                for (int j = 0; j < toRun.size(); j++) {
+                    ResponseEntity<?> response = actionResponses.get(j);
+                    results.set(toRun.get(j), response);
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        continue;
+                    }
+                    StoredResponse storedResponse = new StoredResponse(requestHashes.get(j), response.getStatusCode().value(), toJson(response.getBody()));
+                    if (idempotencyRecordRepository.complete(claims.get(j).id(), claims.get(j).token(),
+                            storedResponse.status(), storedResponse.body()) == 0) {
+                        // A lease ran out and a retry took a key over; the batch runs again later
+                        status.setRollbackOnly();
+                        Collections.fill(stored, null);
+                        toRun.forEach(index -> results.set(index, stillProcessing()));
+                        return;
+                    }
+                    stored.set(j, storedResponse);
+                }
+            });
+        } catch (RuntimeException e) {
+            for (Claim claim : claims) {
+                idempotencyRecordRepository.release(claim.id(), claim.token());
+            }
+            throw e;
+        }
+
+        for (int j = 0; j < toRun.size(); j++) {
+            if (stored.get(j) == null) {
+                idempotencyRecordRepository.release(claims.get(j).id(), claims.get(j).token());
+            } else {
+                responses.put(keys.get(j), stored.get(j));
+            }
+        }
+        return results;
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private Outcome executeOnce(Key key, String requestHash, Supplier<ResponseEntity<?>> action) {
+        Optional<Claim> claimed = claim(key, requestHash);
+        if (claimed.isEmpty()) {
+            IdempotencyRecord existing = idempotencyRecordRepository
+                    .findByUserIdAndIdempotencyKey(key.userId(), key.idempotencyKey())
+                    .orElse(null);
+            if (existing == null) {
+                // Released between our insert and lookup, start over
+                return executeOnce(key, requestHash, action);
+            }
+            StoredResponse stored = completed(key, existing);
+            // Otherwise claimed by another backend instance that has not finished yet
+            return stored != null ? new Outcome(replay(stored, requestHash), stored) : new Outcome(stillProcessing(), null);
+        }
+
+        Claim claim = claimed.get();
+        Outcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> {
+                ResponseEntity<?> response = action.get();
+                if (!response.getStatusCode().is2xxSuccessful()) {
+                    status.setRollbackOnly();
+                    return new Outcome(response, null);
+                }
+
+                StoredResponse stored = new StoredResponse(requestHash, response.getStatusCode().value(), toJson(response.getBody()));
+                if (idempotencyRecordRepository.complete(claim.id(), claim.token(), stored.status(), stored.body()) == 0) {
+                    // Our lease ran out and a retry took the key over; its run counts, not ours
+                    status.setRollbackOnly();
+                    return new Outcome(stillProcessing(), null);
+                }
+                return new Outcome(response, stored);
+            });
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.release(claim.id(), claim.token());
+            throw e;
+        }
+
+        if (outcome.stored() == null) {
+            idempotencyRecordRepository.release(claim.id(), claim.token());
+        } else {
+            responses.put(key, outcome.stored());
+        }
+        return outcome;
+    }
+
+    /**
+     * Inserts an IN_PROGRESS row; the unique (user_id, idempotency_key) constraint
+     * makes this the cross-instance lock. Expired rows are replaced, and claims
+     * whose lease ran out are taken over.
+     */
+    private Optional<Claim> claim(Key key, String requestHash) {
+        String token = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            IdempotencyRecord record = idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(
+                    key.userId(), key.idempotencyKey(), requestHash, token, now.plus(lease), now.plus(ttl)));
+            return Optional.of(new Claim(record.getId(), token));
+        } catch (DataIntegrityViolationException e) {
+            Optional<IdempotencyRecord> existing = idempotencyRecordRepository
+                    .findByUserIdAndIdempotencyKey(key.userId(), key.idempotencyKey());
+            if (existing.isEmpty()) {
+                return Optional.empty();
+            }
+            IdempotencyRecord record = existing.get();
+            if (record.getExpiresAt().isBefore(now)) {
+                idempotencyRecordRepository.delete(record);
+                return claim(key, requestHash);
+            }
+            if (idempotencyRecordRepository.takeOver(record.getId(), token, requestHash, now.plus(lease), now) == 1) {
+                logger.warn("Took over the unfinished {} claim of user {} after its lease ran out", HEADER, key.userId());
+                return Optional.of(new Claim(record.getId(), token));
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The response for a key this request could not claim: the stored one, or a
+     * 409 while another request still holds the key.
+     */
+    private ResponseEntity<?> claimedElsewhere(Key key, String requestHash) {
+        StoredResponse stored = idempotencyRecordRepository
+                .findByUserIdAndIdempotencyKey(key.userId(), key.idempotencyKey())
+                .map(existing -> completed(key, existing))
+                .orElse(null);
+        return stored != null ? replay(stored, requestHash) : stillProcessing();
+    }
+
+    private StoredResponse completed(Key key, IdempotencyRecord record) {
+        if (record.getStatus() != IdempotencyRecord.Status.COMPLETED) {
+            return null;
+        }
+        StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getResponseStatus(), record.getResponseBody());
+        responses.put(key, stored);
+        return stored;
+    }
+
+    private ResponseEntity<?> stillProcessing() {
+        return ResponseEntity.status(409).body("A request with this " + HEADER + " is still being processed");
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.get(IN_FLIGHT_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the original request", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new RuntimeException("Original request with this " + HEADER + " did not finish", e);
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return ResponseEntity.unprocessableEntity().body(HEADER + " was already used for a different request");
+        }
+        return ResponseEntity.status(stored.status())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.body());
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot fingerprint request", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store response", e);
+        }
+    }
+
+    private record Key(Long userId, String idempotencyKey) {}
+
+    private record StoredResponse(String requestHash, int status, String body) {}
+
+    private record Outcome(ResponseEntity<?> response, StoredResponse stored) {}
+
+    private record Claim(Long id, String token) {}
+}
@@ -0,0 +1,144 @@
+package com.webthanhtoan.backend.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webthanhtoan.backend.entity.Customer;
+import com.webthanhtoan.backend.entity.Invoice;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.repository.InvoiceRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a user's invoices straight from a database cursor to the response.
+ *
+ * Rows are read through {@link InvoiceRepository#streamForExport} and detached
+ * once written, so only one fetch block of invoices is in memory at a time
+ * whatever the date range. Output is flushed every {@link #FLUSH_EVERY} rows.
+ */
+@Service
+public class InvoiceExportService {
+
+    public enum Format { JSON, CSV }
+
+    private static final int FLUSH_EVERY = 500;
+
+    private static final String[] CSV_HEADER = {
+            "id", "invoiceNumber", "createdAt", "customerName", "customerPhone", "subtotal",
+            "discountAmount", "discountPercentage", "totalAmount", "paymentMethod", "paymentStatus", "notes"
+    };
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // The stream needs an open transaction for as long as it is read
+    @Transactional(readOnly = true)
+    public void export(User user, LocalDateTime startDate, LocalDateTime endDate, String status,
+                       Format format, OutputStream out) throws IOException {
+        try (Stream<Invoice> invoices = status == null
+                ? invoiceRepository.streamForExport(user, startDate, endDate)
+                : invoiceRepository.streamForExportByPaymentStatus(user, status, startDate, endDate)) {
+            if (format == Format.CSV) {
+                writeCsv(invoices.iterator(), out);
+            } else {
+                writeJson(invoices.iterator(), out);
+            }
+        }
+    }
+
+    private void writeJson(Iterator<Invoice> invoices, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            long rows = 0;
+            while (invoices.hasNext()) {
+                Invoice invoice = invoices.next();
+                json.writeStartObject();
+                json.writeNumberField("id", invoice.getId());
+                json.writeStringField("invoiceNumber", invoice.getInvoiceNumber());
+                json.writeStringField("createdAt", String.valueOf(invoice.getCreatedAt()));
+                Customer customer = invoice.getCustomer();
+                if (customer != null) {
+                    json.writeObjectFieldStart("customer");
+                    json.writeNumberField("id", customer.getId());
+                    json.writeStringField("name", customer.getName());
+                    json.writeStringField("phone", customer.getPhone());
+                    json.writeEndObject();
+                }
+                json.writeNumberField("subtotal", invoice.getSubtotal().toBigDecimal());
+                json.writeNumberField("discountAmount", invoice.getDiscountAmount().toBigDecimal());
+                json.writeNumberField("discountPercentage", invoice.getDiscountPercentage());
+                json.writeNumberField("totalAmount", invoice.getTotalAmount().toBigDecimal());
+                json.writeStringField("paymentMethod", invoice.getPaymentMethod());
+                json.writeStringField("paymentStatus", invoice.getPaymentStatus());
+                json.writeStringField("notes", invoice.getNotes());
+                json.writeEndObject();
+
+                release(invoice);
+                if (++rows % FLUSH_EVERY == 0) {
+                    json.flush();
+                }
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private void writeCsv(Iterator<Invoice> invoices, OutputStream out) throws IOException {
+        Writer csv = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        // BOM so Excel reads Vietnamese names correctly
+        csv.write('\uFEFF');
+        csv.write(String.join(",", CSV_HEADER));
+        csv.write("\r\n");
+
+        long rows = 0;
+        while (invoices.hasNext()) {
+            Invoice invoice = invoices.next();
+            Customer customer = invoice.getCustomer();
+            csv.write(String.valueOf(invoice.getId()));
+            CsvFields.write(csv, invoice.getInvoiceNumber());
+            CsvFields.write(csv, String.valueOf(invoice.getCreatedAt()));
+            CsvFields.write(csv, customer != null ? customer.getName() : null);
+            CsvFields.write(csv, customer != null ? customer.getPhone() : null);
+            CsvFields.write(csv, invoice.getSubtotal());
+            CsvFields.write(csv, invoice.getDiscountAmount());
+            CsvFields.write(csv, invoice.getDiscountPercentage());
+            CsvFields.write(csv, invoice.getTotalAmount());
+            CsvFields.write(csv, invoice.getPaymentMethod());
+            CsvFields.write(csv, invoice.getPaymentStatus());
+            CsvFields.write(csv, invoice.getNotes());
+            csv.write("\r\n");
+
+            release(invoice);
+            if (++rows % FLUSH_EVERY == 0) {
+                csv.flush();
+            }
+        }
+        csv.flush();
+    }
+
+    // Written rows are not needed again; keep the persistence context from growing with the export
+    private void release(Invoice invoice) {
+        entityManager.detach(invoice);
+        if (invoice.getCustomer() != null) {
+            entityManager.detach(invoice.getCustomer());
+        }
+    }
+}
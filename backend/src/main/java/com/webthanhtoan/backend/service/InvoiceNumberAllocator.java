@@ -0,0 +1,121 @@
+package com.webthanhtoan.backend.service;
+
+import com.webthanhtoan.backend.entity.InvoiceNumberCounter;
+import com.webthanhtoan.backend.repository.InvoiceNumberCounterRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out invoice numbers like {@code INV-261018-7-0042}: business day, user id
+ * and a per-user daily sequence.
+ *
+ * Numbers are reserved from invoice_number_counters in blocks, so the database
+ * is hit once per block and every other call is a single atomic increment.
+ * Blocks are reserved in their own short transaction: several backend instances
+ * never get overlapping blocks, and the counter row is not locked for the
+ * duration of a sale. Numbers left in a block when an instance stops are skipped.
+ *
+ * A refill may run while the caller's sale transaction holds a connection; it
+ * needs a second one only once per block.
+ */
+@Service
+public class InvoiceNumberAllocator {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyMMdd");
+
+    private final Map<BlockKey, Block> blocks = new ConcurrentHashMap<>();
+
+    // One monitor per user, so a slow refill only holds up that user's sales
+    private final Map<Long, Object> refillLocks = new ConcurrentHashMap<>();
+
+    private final InvoiceNumberCounterRepository counterRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${invoice.number.block-size:20}")
+    private int blockSize;
+
+    @Autowired
+    public InvoiceNumberAllocator(InvoiceNumberCounterRepository counterRepository, PlatformTransactionManager transactionManager) {
+        this.counterRepository = counterRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public String nextInvoiceNumber(Long userId) {
+        LocalDate today = LocalDate.now();
+        BlockKey key = new BlockKey(userId, today);
+
+        while (true) {
+            Block block = blocks.get(key);
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value < block.end) {
+                    return format(today, userId, value);
+                }
+            }
+
+            // Block missing or used up: only one thread per user refills it
+            synchronized (refillLocks.computeIfAbsent(userId, id -> new Object())) {
+                if (blocks.get(key) == block) {
+                    if (block == null) {
+                        blocks.keySet().removeIf(k -> k.businessDate().isBefore(today));
+                    }
+                    blocks.put(key, reserveBlock(userId, today));
+                }
+            }
+        }
+    }
+
+    private Block reserveBlock(Long userId, LocalDate businessDate) {
+        while (true) {
+            try {
+                Long end = transactionTemplate.execute(status -> {
+                    if (counterRepository.advance(userId, businessDate, blockSize) == 0) {
+                        // First sale of the day for this user
+                        counterRepository.saveAndFlush(new InvoiceNumberCounter(userId, businessDate, 1L + blockSize));
+                        return 1L + blockSize;
+                    }
+                    return counterRepository.findNextValue(userId, businessDate);
+                });
+                return new Block(end - blockSize, end);
+            } catch (DataIntegrityViolationException e) {
+                // Another instance created the day's counter first, advance it instead
+            }
+        }
+    }
+
+    private String format(LocalDate businessDate, Long userId, long value) {
+        StringBuilder number = new StringBuilder(24)
+                .append("INV-").append(DATE_FORMAT.format(businessDate))
+                .append('-').append(userId).append('-');
+        String sequence = Long.toString(value);
+        for (int i = sequence.length(); i < 4; i++) {
+            number.append('0');
+        }
+        return number.append(sequence).toString();
+    }
+
+    private record BlockKey(Long userId, LocalDate businessDate) {}
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
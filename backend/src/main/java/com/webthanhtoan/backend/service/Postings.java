@@ -0,0 +1,83 @@
+package com.webthanhtoan.backend.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Posting lists of the in-memory search indexes: for each key, the ascending
+ * positions of the documents that contain it.
+ */
+final class Postings {
+
+    static final int[] NONE = new int[0];
+
+    private final Map<String, int[]> lists;
+
+    private Postings(Map<String, int[]> lists) {
+        this.lists = lists;
+    }
+
+    int[] get(String key) {
+        return lists.getOrDefault(key, NONE);
+    }
+
+    /**
+     * Documents in both lists.
+     */
+    static int[] intersect(int[] a, int[] b) {
+        int[] both = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                both[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return count == both.length ? both : Arrays.copyOf(both, count);
+    }
+
+    /**
+     * Collects postings document by document, in ascending document order.
+     */
+    static final class Builder {
+        private final Map<String, Growing> lists = new HashMap<>();
+
+        void add(String key, int document) {
+            lists.computeIfAbsent(key, k -> new Growing()).add(document);
+        }
+
+        Postings build() {
+            Map<String, int[]> built = new HashMap<>(lists.size() * 4 / 3 + 1);
+            lists.forEach((key, list) -> built.put(key, list.toArray()));
+            return new Postings(built);
+        }
+    }
+
+    private static final class Growing {
+        private int[] documents = new int[4];
+        private int size;
+
+        void add(int document) {
+            // A key seen twice in one document is posted once
+            if (size > 0 && documents[size - 1] == document) {
+                return;
+            }
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            documents[size++] = document;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(documents, size);
+        }
+    }
+}
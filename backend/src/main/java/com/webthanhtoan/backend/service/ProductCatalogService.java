@@ -0,0 +1,352 @@
+package com.webthanhtoan.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webthanhtoan.backend.dto.ProductResponse;
+import com.webthanhtoan.backend.entity.Product;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * In-memory copy of each user's active products, so the product list, lookups
+ * and checkout pricing do not query the products table on every request.
+ *
+ * A user's catalog is loaded with one query on first use and labelled with the
+ * user's product version (see {@link CatalogVersionService}). It is kept until
+ * it expires, is evicted for space (bounded by the total number of products
+ * held) or the version moves past it, which every product write and stock
+ * change does. Product writes through {@link #save} and stock changes reported
+ * through {@link #stockChanged} are copied into the cached catalog when nothing
+ * else changed since it was loaded; anything else makes it reload on next use.
+ *
+ * Name search runs on a {@link ProductSearchIndex} and barcode scans on a map
+ * of barcodes, both built from the catalog on first use. A reloaded or updated
+ * catalog keeps those of the one it replaces while no product was added,
+ * renamed or given another barcode.
+ *
+ * Hit, miss and eviction counts are published as the {@code cache.*} meters
+ * tagged {@code cache=productCatalog}.
+ */
+@Service
+public class ProductCatalogService {
+
+    private static final String CACHE_NAME = "productCatalog";
+
+    private final Cache<Long, Catalog> catalogs;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    public ProductCatalogService(@Value("${product.catalog.max-products:100000}") long maxProducts,
+                                 @Value("${product.catalog.ttl:PT10M}") Duration ttl,
+                                 MeterRegistry meterRegistry) {
+        this.catalogs = Caffeine.newBuilder()
+                .maximumWeight(maxProducts)
+                .weigher((Long userId, Catalog catalog) -> Math.max(1, catalog.products().size()))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, catalogs, CACHE_NAME);
+    }
+
+    /**
+     * Active products of a user at one product version.
+     */
+    public record Listing(long version, List<ProductResponse> products) {}
+
+    /**
+     * Active products of the user, in the order they were loaded, at least as
+     * new as {@code version} (a product version the caller has just read).
+     */
+    public Listing activeProducts(User user, long version) {
+        Catalog catalog = catalogOf(user, version);
+        return new Listing(catalog.version(), new ArrayList<>(catalog.products().values()));
+    }
+
+    public Optional<ProductResponse> findActive(User user, Long productId) {
+        return Optional.ofNullable(catalogOf(user).products().get(productId));
+    }
+
+    /**
+     * The given products that are in the user's active catalog. Ids that are
+     * not (inactive or unknown products) are left out.
+     */
+    public Map<Long, ProductResponse> findActive(User user, Collection<Long> productIds) {
+        Map<Long, ProductResponse> products = catalogOf(user).products();
+        Map<Long, ProductResponse> found = new HashMap<>();
+        for (Long productId : productIds) {
+            ProductResponse product = products.get(productId);
+            if (product != null) {
+                found.put(productId, product);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Active products whose name contains every word of the query, ignoring
+     * case and accents, best matches first. At most {@code limit} are returned.
+     */
+    public List<ProductResponse> search(User user, String query, int limit) {
+        Catalog catalog = catalogOf(user);
+        Map<Long, ProductResponse> products = catalog.products();
+        List<ProductResponse> found = new ArrayList<>();
+        if (SearchText.fold(query).isEmpty()) {
+            // Matches everything, as LIKE '%%' did
+            for (ProductResponse product : products.values()) {
+                if (found.size() == limit) {
+                    break;
+                }
+                found.add(product);
+            }
+            return found;
+        }
+        for (Long productId : catalog.searchIndex().search(query, limit, products::containsKey)) {
+            found.add(products.get(productId));
+        }
+        return found;
+    }
+
+    /**
+     * The active product with this barcode, from a hash lookup in the cached
+     * catalog.
+     */
+    public Optional<ProductResponse> findByBarcode(User user, String barcode) {
+        String code = normalizeBarcode(barcode);
+        if (code == null) {
+            return Optional.empty();
+        }
+        Catalog catalog = catalogOf(user);
+        Long productId = catalog.barcodes().get(code);
+        ProductResponse product = productId == null ? null : catalog.products().get(productId);
+        // A reused map can still list products removed since, so check the hit against the catalog
+        return product != null && code.equals(product.barcode()) ? Optional.of(product) : Optional.empty();
+    }
+
+    public List<ProductResponse> lowStock(User user, int threshold) {
+        List<ProductResponse> lowStock = new ArrayList<>();
+        for (ProductResponse product : catalogOf(user).products().values()) {
+            if (product.stock() <= threshold) {
+                lowStock.add(product);
+            }
+        }
+        return lowStock;
+    }
+
+    /**
+     * Saves a created, updated or deactivated product and moves the owner's
+     * product version with it. The new version is the product's change sequence.
+     * Barcodes only have to be unique among active products: a deactivated
+     * product keeps its barcode, and a replacement can take it meanwhile.
+     *
+     * @throws IllegalArgumentException if another active product of the owner has the barcode
+     */
+    @Transactional
+    public Product save(Product product) {
+        product.setBarcode(normalizeBarcode(product.getBarcode()));
+        if (product.getBarcode() != null && Boolean.TRUE.equals(product.getIsActive())
+                && productRepository.existsOtherWithBarcode(product.getUser(), product.getBarcode(), product.getId())) {
+            throw new IllegalArgumentException("Barcode " + product.getBarcode() + " is already used by another product");
+        }
+
+        Long userId = product.getUser().getId();
+        // Product row first, then the version row, in the same order as a sale's stock change
+        Product saved = productRepository.saveAndFlush(product);
+        long version = catalogVersionService.productsChanged(userId);
+        saved.setChangeSeq(version);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // updatedAt is only set when the product is flushed, so read it after commit
+                ProductResponse response = ProductResponse.from(saved);
+                catalogs.asMap().computeIfPresent(userId, (id, catalog) -> catalog.after(List.of(response), version));
+            }
+        });
+        return saved;
+    }
+
+    /**
+     * Call after changing the stock of products in the current transaction,
+     * with the product version the change was made under. Reads the products
+     * back, so a cached catalog takes their new stock on commit instead of
+     * being reloaded on its next use (usually the next scan at the till).
+     */
+    public void stockChanged(Long userId, Collection<Long> productIds, long version) {
+        if (!catalogs.asMap().containsKey(userId)) {
+            return;
+        }
+        // Whole rows rather than deltas, so applying them to a catalog that already has them changes nothing
+        List<ProductResponse> changed = productRepository.findResponsesByIdIn(productIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                catalogs.asMap().computeIfPresent(userId, (id, catalog) -> catalog.after(changed, version));
+            }
+        });
+    }
+
+    private static String normalizeBarcode(String barcode) {
+        if (barcode == null || barcode.isBlank()) {
+            return null;
+        }
+        return barcode.strip();
+    }
+
+    private Catalog catalogOf(User user) {
+        // Read before loading, so a catalog is never labelled newer than its data
+        return catalogOf(user, catalogVersionService.productVersion(user.getId()));
+    }
+
+    private Catalog catalogOf(User user, long version) {
+        Catalog catalog = catalogs.get(user.getId(), userId -> load(user, version, null));
+        if (catalog.version() < version) {
+            catalog = catalogs.asMap().compute(user.getId(), (userId, cached) ->
+                    cached != null && cached.version() >= version ? cached : load(user, version, cached));
+        }
+        return catalog;
+    }
+
+    private Catalog load(User user, long version, Catalog previous) {
+        Map<Long, ProductResponse> byId = new LinkedHashMap<>();
+        for (ProductResponse product : productRepository.findByUserAndIsActiveTrue(user)) {
+            byId.put(product.id(), product);
+        }
+        Catalog catalog = new Catalog(version, byId);
+        // Usually a stock change: same products, same names and barcodes
+        if (previous != null && previous.same(byId, ProductResponse::name)) {
+            catalog.searchIndex = previous.searchIndex;
+        }
+        if (previous != null && previous.same(byId, ProductResponse::barcode)) {
+            catalog.barcodes = previous.barcodes;
+        }
+        return catalog;
+    }
+
+    /**
+     * Immutable snapshot of one user's active products by id. Changes build a
+     * new snapshot, so readers never see one half-updated.
+     */
+    private static final class Catalog {
+        private final long version;
+
+        private final Map<Long, ProductResponse> products;
+
+        // Built on first use; a racing second build is harmless
+        private volatile ProductSearchIndex searchIndex;
+
+        private volatile Map<String, Long> barcodes;
+
+        Catalog(long version, Map<Long, ProductResponse> products) {
+            this.version = version;
+            this.products = products;
+        }
+
+        long version() {
+            return version;
+        }
+
+        Map<Long, ProductResponse> products() {
+            return products;
+        }
+
+        ProductSearchIndex searchIndex() {
+            ProductSearchIndex index = searchIndex;
+            if (index == null) {
+                index = ProductSearchIndex.build(products.values());
+                searchIndex = index;
+            }
+            return index;
+        }
+
+        Map<String, Long> barcodes() {
+            Map<String, Long> byBarcode = barcodes;
+            if (byBarcode == null) {
+                byBarcode = new HashMap<>();
+                for (ProductResponse product : products.values()) {
+                    if (product.barcode() != null) {
+                        byBarcode.put(product.barcode(), product.id());
+                    }
+                }
+                barcodes = byBarcode;
+            }
+            return byBarcode;
+        }
+
+        /**
+         * Whether {@code other} has exactly these products with the same
+         * {@code key} (name, barcode), so an index on that key still applies.
+         */
+        boolean same(Map<Long, ProductResponse> other, Function<ProductResponse, Object> key) {
+            if (other.size() != products.size()) {
+                return false;
+            }
+            for (ProductResponse product : other.values()) {
+                ProductResponse mine = products.get(product.id());
+                if (mine == null || !Objects.equals(key.apply(mine), key.apply(product))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * This catalog after the write that produced {@code version}, given as
+         * the products it changed, or null (dropped) when it also missed other
+         * writes.
+         */
+        Catalog after(Collection<ProductResponse> changed, long version) {
+            if (this.version >= version) {
+                // Loaded after the write committed, so already has it
+                return this;
+            }
+            if (this.version != version - 1) {
+                return null;
+            }
+            Map<Long, ProductResponse> byId = new LinkedHashMap<>(products);
+            // Lookups skip ids missing from the catalog, so only new, renamed or
+            // recoded products need new indexes
+            boolean sameNames = true;
+            boolean sameBarcodes = true;
+            for (ProductResponse product : changed) {
+                if (!Boolean.TRUE.equals(product.isActive())) {
+                    byId.remove(product.id());
+                    continue;
+                }
+                ProductResponse replaced = byId.put(product.id(), product);
+                sameNames &= replaced != null && replaced.name().equals(product.name());
+                sameBarcodes &= replaced != null ? Objects.equals(replaced.barcode(), product.barcode()) : product.barcode() == null;
+            }
+            Catalog catalog = new Catalog(version, byId);
+            if (sameNames) {
+                catalog.searchIndex = searchIndex;
+            }
+            if (sameBarcodes) {
+                catalog.barcodes = barcodes;
+            }
+            return catalog;
+        }
+    }
+}
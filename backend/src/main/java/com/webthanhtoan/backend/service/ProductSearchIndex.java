@@ -0,0 +1,158 @@
+package com.webthanhtoan.backend.service;
+
+import com.webthanhtoan.backend.dto.ProductResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongPredicate;
+
+/**
+ * Substring search over folded product names (see {@link SearchText}).
+ *
+ * Every 1-, 2- and 3-character substring of every word is posted, so a query
+ * word of up to three characters is answered by one posting list and a longer
+ * one by intersecting the lists of its trigrams and checking the few names
+ * left. A query with several words matches names containing all of them, in
+ * any order.
+ *
+ * Immutable once built; built from one catalog snapshot.
+ */
+final class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+
+    // Exact name, name prefix, every query word starts a word, anywhere
+    private static final int EXACT = 0;
+    private static final int NAME_PREFIX = 1;
+    private static final int WORD_PREFIX = 2;
+    private static final int SUBSTRING = 3;
+
+    private final long[] ids;
+
+    private final String[] names;
+
+    private final Postings grams;
+
+    private ProductSearchIndex(long[] ids, String[] names, Postings grams) {
+        this.ids = ids;
+        this.names = names;
+        this.grams = grams;
+    }
+
+    static ProductSearchIndex build(Collection<ProductResponse> products) {
+        long[] ids = new long[products.size()];
+        String[] names = new String[products.size()];
+        Postings.Builder grams = new Postings.Builder();
+
+        int document = 0;
+        for (ProductResponse product : products) {
+            String name = SearchText.fold(product.name());
+            ids[document] = product.id();
+            names[document] = name;
+            for (String word : SearchText.tokens(name)) {
+                for (int length = 1; length <= GRAM; length++) {
+                    for (int start = 0; start + length <= word.length(); start++) {
+                        grams.add(word.substring(start, start + length), document);
+                    }
+                }
+            }
+            document++;
+        }
+        return new ProductSearchIndex(ids, names, grams.build());
+    }
+
+    /**
+     * Ids of the best {@code limit} products matching the query, best first:
+     * exact name, then names starting with the query, then names where every
+     * query word starts a word, then other matches; shorter names first within
+     * each. Products rejected by {@code include} are skipped.
+     */
+    List<Long> search(String query, int limit, LongPredicate include) {
+        String folded = SearchText.fold(query);
+        String[] words = SearchText.tokens(folded);
+        if (words.length == 0) {
+            return List.of();
+        }
+
+        int[] matches = null;
+        for (String word : words) {
+            int[] documents = documentsContaining(word);
+            matches = matches == null ? documents : Postings.intersect(matches, documents);
+            if (matches.length == 0) {
+                return List.of();
+            }
+        }
+
+        Comparator<Hit> order = Comparator.comparingInt(Hit::rank)
+                .thenComparingInt(hit -> names[hit.document()].length())
+                .thenComparing(hit -> names[hit.document()])
+                .thenComparingLong(hit -> ids[hit.document()]);
+
+        // Keep only the best limit hits: the worst kept one sits at the head
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, matches.length) + 1, order.reversed());
+        for (int document : matches) {
+            if (!include.test(ids[document])) {
+                continue;
+            }
+            best.add(new Hit(document, rank(names[document], folded, words)));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        Hit[] hits = best.toArray(new Hit[0]);
+        Arrays.sort(hits, order);
+        List<Long> ranked = new ArrayList<>(hits.length);
+        for (Hit hit : hits) {
+            ranked.add(ids[hit.document()]);
+        }
+        return ranked;
+    }
+
+    private int[] documentsContaining(String word) {
+        if (word.length() <= GRAM) {
+            return grams.get(word);
+        }
+
+        // Names with every trigram of the word, rarest first, then checked for the word itself
+        List<int[]> lists = new ArrayList<>(word.length() - GRAM + 1);
+        for (int start = 0; start + GRAM <= word.length(); start++) {
+            lists.add(grams.get(word.substring(start, start + GRAM)));
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        int[] candidates = lists.get(0);
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = Postings.intersect(candidates, lists.get(i));
+        }
+
+        int[] documents = new int[candidates.length];
+        int count = 0;
+        for (int document : candidates) {
+            if (names[document].contains(word)) {
+                documents[count++] = document;
+            }
+        }
+        return Arrays.copyOf(documents, count);
+    }
+
+    private static int rank(String name, String query, String[] words) {
+        if (name.equals(query)) {
+            return EXACT;
+        }
+        if (name.startsWith(query)) {
+            return NAME_PREFIX;
+        }
+        for (String word : words) {
+            if (!SearchText.startsWord(name, word)) {
+                return SUBSTRING;
+            }
+        }
+        return WORD_PREFIX;
+    }
+
+    private record Hit(int document, int rank) {}
+}
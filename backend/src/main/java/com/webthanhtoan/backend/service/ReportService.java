@@ -0,0 +1,225 @@
+package com.webthanhtoan.backend.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webthanhtoan.backend.dto.ProductSales;
+import com.webthanhtoan.backend.dto.ProductSalesPage;
+import com.webthanhtoan.backend.dto.ReportSummary;
+import com.webthanhtoan.backend.dto.SalesTotals;
+import com.webthanhtoan.backend.entity.Money;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.repository.DailyRevenueRepository;
+import com.webthanhtoan.backend.repository.InvoiceItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Sales reports computed by the database. Each report is a couple of GROUP BY
+ * queries, so the cost does not grow with the number of invoices sent back.
+ * Invoice totals come from the daily revenue rollup, one row per day and key.
+ *
+ * The product sales report is a single GROUP BY over invoice_items, served by
+ * idx_invoice_items_sales without reading the item rows themselves. It is
+ * returned a page at a time or streamed whole through a database cursor.
+ */
+@Service
+public class ReportService {
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private static final int FLUSH_EVERY = 500;
+
+    private static final String[] PRODUCT_SALES_CSV_HEADER = {
+            "productId", "productName", "quantity", "revenue", "cost", "grossMargin", "marginPercentage"
+    };
+
+    /**
+     * Order of the product sales report, largest first. Ties are broken by product id
+     * so pages do not overlap.
+     */
+    public enum ProductRanking {
+        QUANTITY("SUM(ii.quantity)"),
+        REVENUE("SUM(ii.totalPrice)"),
+        MARGIN("SUM(ii.totalPrice) - SUM(COALESCE(CAST(ii.costPrice AS BigDecimal), 0) * ii.quantity)");
+
+        private final String expression;
+
+        ProductRanking(String expression) {
+            this.expression = expression;
+        }
+
+        private Sort sort() {
+            return JpaSort.unsafe(Sort.Direction.DESC, expression).andUnsafe(Sort.Direction.ASC, "p.id");
+        }
+    }
+
+    @Autowired
+    private DailyRevenueRepository dailyRevenueRepository;
+
+    @Autowired
+    private InvoiceItemRepository invoiceItemRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public ReportSummary summary(User user, LocalDate startDate, LocalDate endDate, String status) {
+        LocalDateTime from = from(startDate);
+        LocalDateTime to = to(endDate);
+
+        long invoiceCount = 0;
+        Money revenue = Money.ZERO;
+        Money subtotal = Money.ZERO;
+        Map<String, Bucket> byMethod = new LinkedHashMap<>();
+        Map<String, Bucket> byStatus = new LinkedHashMap<>();
+        Set<String> statuses = new LinkedHashSet<>();
+
+        for (SalesTotals row : dailyRevenueRepository.sumByStatusAndMethod(user.getId(),
+                from.toLocalDate(), to.toLocalDate())) {
+            // The status filter is applied here so one query serves every filter
+            if (status != null && !status.equals(row.paymentStatus())) {
+                continue;
+            }
+            invoiceCount += row.invoiceCount();
+            revenue = revenue.plus(row.revenue());
+            subtotal = subtotal.plus(row.subtotal());
+            byMethod.computeIfAbsent(row.paymentMethod(), k -> new Bucket()).add(row);
+            byStatus.computeIfAbsent(row.paymentStatus(), k -> new Bucket()).add(row);
+            statuses.add(row.paymentStatus());
+        }
+
+        long itemQuantity = statuses.isEmpty() ? 0 : invoiceItemRepository.sumQuantityByUser(user, from, to, statuses);
+
+        return new ReportSummary(startDate, endDate, status, invoiceCount, revenue, subtotal,
+                subtotal.minus(revenue), invoiceCount == 0 ? Money.ZERO : revenue.dividedBy(invoiceCount),
+                average(BigDecimal.valueOf(itemQuantity), invoiceCount), itemQuantity,
+                breakdown(byMethod), breakdown(byStatus));
+    }
+
+    public ProductSalesPage productSales(User user, LocalDate startDate, LocalDate endDate, String status,
+                                         ProductRanking ranking, int page, int size) {
+        Slice<ProductSales> slice = invoiceItemRepository.sumByProduct(user, status, from(startDate), to(endDate),
+                PageRequest.of(page, size, ranking.sort()));
+        return new ProductSalesPage(slice.getContent(), page, size, slice.hasNext());
+    }
+
+    // The stream needs an open transaction for as long as it is read
+    @Transactional(readOnly = true)
+    public void exportProductSales(User user, LocalDate startDate, LocalDate endDate, String status,
+                                   ProductRanking ranking, InvoiceExportService.Format format, OutputStream out) throws IOException {
+        try (Stream<ProductSales> rows = invoiceItemRepository.streamByProduct(user, status, from(startDate), to(endDate), ranking.sort())) {
+            if (format == InvoiceExportService.Format.CSV) {
+                writeProductSalesCsv(rows.iterator(), out);
+            } else {
+                writeProductSalesJson(rows.iterator(), out);
+            }
+        }
+    }
+
+    private void writeProductSalesJson(Iterator<ProductSales> rows, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            long count = 0;
+            while (rows.hasNext()) {
+                ProductSales row = rows.next();
+                json.writeStartObject();
+                json.writeNumberField("productId", row.productId());
+                json.writeStringField("productName", row.productName());
+                json.writeNumberField("quantity", row.quantity());
+                json.writeNumberField("revenue", row.revenue().toBigDecimal());
+                json.writeNumberField("cost", row.cost().toBigDecimal());
+                json.writeNumberField("grossMargin", row.grossMargin().toBigDecimal());
+                json.writeNumberField("marginPercentage", row.marginPercentage());
+                json.writeEndObject();
+                if (++count % FLUSH_EVERY == 0) {
+                    json.flush();
+                }
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private void writeProductSalesCsv(Iterator<ProductSales> rows, OutputStream out) throws IOException {
+        Writer csv = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        // BOM so Excel reads Vietnamese names correctly
+        csv.write('\uFEFF');
+        csv.write(String.join(",", PRODUCT_SALES_CSV_HEADER));
+        csv.write("\r\n");
+
+        long count = 0;
+        while (rows.hasNext()) {
+            ProductSales row = rows.next();
+            csv.write(String.valueOf(row.productId()));
+            CsvFields.write(csv, row.productName());
+            CsvFields.write(csv, String.valueOf(row.quantity()));
+            CsvFields.write(csv, row.revenue());
+            CsvFields.write(csv, row.cost());
+            CsvFields.write(csv, row.grossMargin());
+            CsvFields.write(csv, row.marginPercentage());
+            csv.write("\r\n");
+            if (++count % FLUSH_EVERY == 0) {
+                csv.flush();
+            }
+        }
+        csv.flush();
+    }
+
+    private LocalDateTime from(LocalDate startDate) {
+        return startDate != null ? startDate.atStartOfDay() : EARLIEST;
+    }
+
+    private LocalDateTime to(LocalDate endDate) {
+        return endDate != null ? endDate.atTime(LocalTime.MAX) : LATEST;
+    }
+
+    private BigDecimal average(BigDecimal total, long count) {
+        if (count == 0) {
+            return BigDecimal.ZERO;
+        }
+        return total.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+
+    private List<ReportSummary.Breakdown> breakdown(Map<String, Bucket> buckets) {
+        List<ReportSummary.Breakdown> result = new ArrayList<>(buckets.size());
+        buckets.forEach((key, bucket) -> result.add(new ReportSummary.Breakdown(key, bucket.count, bucket.revenue)));
+        result.sort(Comparator.comparingLong(ReportSummary.Breakdown::count).reversed());
+        return result;
+    }
+
+    private static final class Bucket {
+        private long count;
+        private Money revenue = Money.ZERO;
+
+        private void add(SalesTotals row) {
+            count += row.invoiceCount();
+            revenue = revenue.plus(row.revenue());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.webthanhtoan.backend.service;
+
+import java.text.Normalizer;
+
+/**
+ * Folding of names and search input for the in-memory search indexes, so
+ * "Điện thoại", "dien thoai" and "DIỆN-THOẠI" all read the same.
+ */
+final class SearchText {
+
+    private static final String[] NO_TOKENS = new String[0];
+
+    private SearchText() {}
+
+    /**
+     * Lower-cased, without accents, with đ read as d, and with every run of
+     * other characters (spaces, punctuation) turned into a single space.
+     */
+    static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        boolean separator = true;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                    || type == Character.ENCLOSING_MARK) {
+                continue;
+            }
+            if (c == 'đ' || c == 'Đ') {
+                c = 'd';
+            }
+            if (Character.isLetterOrDigit(c)) {
+                folded.append(Character.toLowerCase(c));
+                separator = false;
+            } else if (!separator) {
+                folded.append(' ');
+                separator = true;
+            }
+        }
+        int length = folded.length();
+        if (length > 0 && folded.charAt(length - 1) == ' ') {
+            folded.setLength(length - 1);
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Digits of a phone number, with the +84 country code read as the leading
+     * 0, so "+84 90-123 4567" and "0901234567" are the same number.
+     */
+    static String phoneDigits(String phone) {
+        if (phone == null || phone.isEmpty()) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        boolean countryCode = phone.stripLeading().startsWith("+84") || digits.length() == 11 && digits.indexOf("84") == 0;
+        if (countryCode && digits.length() > 2) {
+            digits.replace(0, 2, "0");
+        }
+        return digits.toString();
+    }
+
+    static String[] tokens(String folded) {
+        return folded.isEmpty() ? NO_TOKENS : folded.split(" ");
+    }
+
+    /**
+     * Whether {@code token} starts a word of the folded {@code text}.
+     */
+    static boolean startsWord(String text, String token) {
+        int at = text.indexOf(token);
+        while (at >= 0) {
+            if (at == 0 || text.charAt(at - 1) == ' ') {
+                return true;
+            }
+            at = text.indexOf(token, at + 1);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+-- Move existing PostgreSQL databases from IDENTITY/BIGSERIAL ids to the pooled
+-- *_seq sequences used by PooledSequenceGenerator.
+--
+-- Run once before deploying the new backend. Set allocation_size below to
+-- JPA_ID_ALLOCATION_SIZE (default 50) first. Each sequence starts after the
+-- current MAX(id) so new ids never collide with existing rows. The old identity
+-- defaults are dropped because Hibernate now always supplies the id.
+
+DO $$
+DECLARE
+    allocation_size CONSTANT INT := 50;
+    t TEXT;
+    next_id BIGINT;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['users', 'customers', 'products', 'invoices', 'invoice_items'] LOOP
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) + 1 FROM %I', t) INTO next_id;
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I START WITH %s INCREMENT BY %s', t || '_seq', next_id, allocation_size);
+        EXECUTE format('SELECT setval(%L, %s, false)', t || '_seq', next_id);
+
+        IF EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_name = t AND column_name = 'id' AND is_identity = 'YES') THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', t);
+        ELSE
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP DEFAULT', t);
+        END IF;
+    END LOOP;
+END $$;
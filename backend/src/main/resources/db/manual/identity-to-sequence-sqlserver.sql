@@ -0,0 +1,96 @@
+-- Move existing SQL Server databases from IDENTITY ids to the pooled *_seq
+-- sequences used by PooledSequenceGenerator.
+--
+-- SQL Server cannot drop the IDENTITY property in place, and an IDENTITY column
+-- rejects explicit ids, so on each table the id is copied into a new plain
+-- BIGINT column that then takes the place of the old one. The table itself is
+-- kept, with its unique constraints, defaults and other indexes; only the
+-- primary key and the foreign keys referencing it are dropped, and they are
+-- recreated under the same names. The sequence then starts after MAX(id).
+-- Set @allocation_size below to JPA_ID_ALLOCATION_SIZE (default 50) first.
+--
+-- Runs in one transaction, so it either converts every table or none. Needs
+-- SQL Server 2017 or later (STRING_AGG). Run in a maintenance window.
+
+SET XACT_ABORT ON;
+BEGIN TRANSACTION;
+
+DECLARE @allocation_size INT = 50;
+
+DECLARE @tables TABLE (name SYSNAME, ord INT);
+INSERT INTO @tables VALUES ('invoice_items', 1), ('invoices', 2), ('customers', 3), ('products', 4), ('users', 5);
+
+-- Other indexes on the id column would have to be rebuilt too; the schema has none
+IF EXISTS (SELECT 1 FROM sys.index_columns ic
+           JOIN sys.indexes i ON i.object_id = ic.object_id AND i.index_id = ic.index_id
+           JOIN sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id
+           WHERE OBJECT_NAME(ic.object_id) IN (SELECT name FROM @tables) AND c.name = 'id' AND i.is_primary_key = 0)
+    THROW 50000, 'An index other than the primary key covers an id column; drop it before running this script.', 1;
+
+-- Foreign keys referencing the tables, to drop now and recreate at the end
+DECLARE @foreign_keys TABLE (definition NVARCHAR(MAX));
+INSERT INTO @foreign_keys
+SELECT N'ALTER TABLE ' + QUOTENAME(OBJECT_NAME(fk.parent_object_id))
+     + N' WITH CHECK ADD CONSTRAINT ' + QUOTENAME(fk.name)
+     + N' FOREIGN KEY (' + STRING_AGG(QUOTENAME(pc.name), N', ') WITHIN GROUP (ORDER BY fkc.constraint_column_id) + N')'
+     + N' REFERENCES ' + QUOTENAME(OBJECT_NAME(fk.referenced_object_id))
+     + N' (' + STRING_AGG(QUOTENAME(rc.name), N', ') WITHIN GROUP (ORDER BY fkc.constraint_column_id) + N')'
+     + N' ON DELETE ' + REPLACE(fk.delete_referential_action_desc, N'_', N' ')
+     + N' ON UPDATE ' + REPLACE(fk.update_referential_action_desc, N'_', N' ') + N';'
+FROM sys.foreign_keys fk
+JOIN sys.foreign_key_columns fkc ON fkc.constraint_object_id = fk.object_id
+JOIN sys.columns pc ON pc.object_id = fkc.parent_object_id AND pc.column_id = fkc.parent_column_id
+JOIN sys.columns rc ON rc.object_id = fkc.referenced_object_id AND rc.column_id = fkc.referenced_column_id
+WHERE OBJECT_NAME(fk.referenced_object_id) IN (SELECT name FROM @tables)
+GROUP BY fk.name, fk.parent_object_id, fk.referenced_object_id, fk.delete_referential_action_desc, fk.update_referential_action_desc;
+
+DECLARE @sql NVARCHAR(MAX) = N'';
+SELECT @sql += N'ALTER TABLE ' + QUOTENAME(OBJECT_NAME(fk.parent_object_id)) + N' DROP CONSTRAINT ' + QUOTENAME(fk.name) + N';'
+FROM sys.foreign_keys fk
+WHERE OBJECT_NAME(fk.referenced_object_id) IN (SELECT name FROM @tables);
+EXEC sp_executesql @sql;
+
+DECLARE @t SYSNAME, @pk SYSNAME, @next BIGINT;
+DECLARE table_cursor CURSOR FOR SELECT name FROM @tables ORDER BY ord;
+OPEN table_cursor;
+FETCH NEXT FROM table_cursor INTO @t;
+WHILE @@FETCH_STATUS = 0
+BEGIN
+    IF COLUMNPROPERTY(OBJECT_ID(@t), 'id', 'IsIdentity') = 1
+    BEGIN
+        SET @pk = (SELECT name FROM sys.key_constraints WHERE parent_object_id = OBJECT_ID(@t) AND type = 'PK');
+
+        -- Separate batches: the new column only exists once it has been added
+        SET @sql = N'ALTER TABLE ' + QUOTENAME(@t) + N' ADD id_new BIGINT NULL;';
+        EXEC sp_executesql @sql;
+        SET @sql = N'UPDATE ' + QUOTENAME(@t) + N' SET id_new = id;'
+                 + N'ALTER TABLE ' + QUOTENAME(@t) + N' ALTER COLUMN id_new BIGINT NOT NULL;'
+                 + N'ALTER TABLE ' + QUOTENAME(@t) + N' DROP CONSTRAINT ' + QUOTENAME(@pk) + N';'
+                 + N'ALTER TABLE ' + QUOTENAME(@t) + N' DROP COLUMN id;';
+        EXEC sp_executesql @sql;
+        SET @sql = @t + N'.id_new';
+        EXEC sp_rename @sql, 'id', 'COLUMN';
+        SET @sql = N'ALTER TABLE ' + QUOTENAME(@t) + N' ADD CONSTRAINT ' + QUOTENAME(@pk) + N' PRIMARY KEY (id);';
+        EXEC sp_executesql @sql;
+    END
+
+    SET @sql = N'SELECT @next = COALESCE(MAX(id), 0) + 1 FROM ' + QUOTENAME(@t);
+    EXEC sp_executesql @sql, N'@next BIGINT OUTPUT', @next OUTPUT;
+
+    IF OBJECT_ID(@t + '_seq', 'SO') IS NULL
+    BEGIN
+        SET @sql = N'CREATE SEQUENCE ' + QUOTENAME(@t + '_seq') + N' START WITH ' + CAST(@next AS NVARCHAR(20))
+                 + N' INCREMENT BY ' + CAST(@allocation_size AS NVARCHAR(20)) + N';';
+        EXEC sp_executesql @sql;
+    END
+
+    FETCH NEXT FROM table_cursor INTO @t;
+END
+CLOSE table_cursor;
+DEALLOCATE table_cursor;
+
+SET @sql = N'';
+SELECT @sql += definition FROM @foreign_keys;
+EXEC sp_executesql @sql;
+
+COMMIT TRANSACTION;
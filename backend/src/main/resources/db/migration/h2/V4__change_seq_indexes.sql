@@ -0,0 +1,5 @@
+-- Delta sync (GET /api/products/changes, /api/customers/changes) reads a
+-- user's rows in change_seq order. The entities declare the same indexes.
+
+CREATE INDEX IF NOT EXISTS idx_products_user_change ON products (user_id, change_seq);
+CREATE INDEX IF NOT EXISTS idx_customers_user_change ON customers (user_id, change_seq);
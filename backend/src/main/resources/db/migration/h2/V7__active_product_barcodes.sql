@@ -0,0 +1,8 @@
+-- A deactivated product keeps its barcode, and only active products need
+-- distinct barcodes, so a replacement can reuse one. H2 has no partial
+-- indexes: the unique index covers a generated column that holds the barcode
+-- of active products only, NULL (never colliding) for the rest.
+
+DROP INDEX IF EXISTS uk_products_user_barcode;
+ALTER TABLE products ADD COLUMN IF NOT EXISTS active_barcode VARCHAR(64) GENERATED ALWAYS AS (CASE WHEN is_active THEN barcode END);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_products_user_barcode ON products (user_id, active_barcode);
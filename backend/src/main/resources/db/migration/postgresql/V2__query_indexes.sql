@@ -0,0 +1,9 @@
+-- Composite indexes for the per-user, time-ordered invoice queries.
+-- The entities declare the same indexes, so ddl-auto create/update builds them
+-- too; this covers schemas created before they existed. Runs after Hibernate.
+
+CREATE INDEX IF NOT EXISTS idx_invoices_user_created ON invoices (user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_invoices_user_status_created ON invoices (user_id, payment_status, created_at);
+CREATE INDEX IF NOT EXISTS idx_invoice_items_invoice ON invoice_items (invoice_id);
+CREATE INDEX IF NOT EXISTS idx_products_user_active ON products (user_id, is_active);
+CREATE INDEX IF NOT EXISTS idx_customers_user ON customers (user_id);
@@ -0,0 +1,4 @@
+-- Covering index for the product sales report (GROUP BY product over the
+-- items of a user's invoices). The entity declares the same index.
+
+CREATE INDEX IF NOT EXISTS idx_invoice_items_sales ON invoice_items (invoice_id, product_id, quantity, total_price, cost_price);
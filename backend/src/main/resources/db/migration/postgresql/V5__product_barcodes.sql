@@ -0,0 +1,5 @@
+-- Barcode scans (GET /api/products/scan/{code}) and the duplicate check on
+-- product writes look products up by (user_id, barcode). The entity declares
+-- the same unique constraint; NULL barcodes do not collide.
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_products_user_barcode ON products (user_id, barcode);
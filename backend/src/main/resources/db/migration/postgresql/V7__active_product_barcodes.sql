@@ -0,0 +1,6 @@
+-- A deactivated product keeps its barcode, and only active products need
+-- distinct barcodes, so a replacement can reuse one. The duplicate check on
+-- product writes filters on is_active = true too, so it can use this index.
+
+DROP INDEX IF EXISTS uk_products_user_barcode;
+CREATE UNIQUE INDEX uk_products_user_barcode ON products (user_id, barcode) WHERE is_active = true;
@@ -0,0 +1,14 @@
+-- Composite indexes for the per-user, time-ordered invoice queries.
+-- The entities declare the same indexes, so ddl-auto create/update builds them
+-- too; this covers schemas created before they existed. Runs after Hibernate.
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_invoices_user_created' AND object_id = OBJECT_ID('invoices'))
+    CREATE INDEX idx_invoices_user_created ON invoices (user_id, created_at);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_invoices_user_status_created' AND object_id = OBJECT_ID('invoices'))
+    CREATE INDEX idx_invoices_user_status_created ON invoices (user_id, payment_status, created_at);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_invoice_items_invoice' AND object_id = OBJECT_ID('invoice_items'))
+    CREATE INDEX idx_invoice_items_invoice ON invoice_items (invoice_id);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_products_user_active' AND object_id = OBJECT_ID('products'))
+    CREATE INDEX idx_products_user_active ON products (user_id, is_active);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_customers_user' AND object_id = OBJECT_ID('customers'))
+    CREATE INDEX idx_customers_user ON customers (user_id);
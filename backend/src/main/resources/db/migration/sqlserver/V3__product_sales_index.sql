@@ -0,0 +1,5 @@
+-- Covering index for the product sales report (GROUP BY product over the
+-- items of a user's invoices). The entity declares the same index.
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_invoice_items_sales' AND object_id = OBJECT_ID('invoice_items'))
+    CREATE INDEX idx_invoice_items_sales ON invoice_items (invoice_id, product_id, quantity, total_price, cost_price);
@@ -0,0 +1,7 @@
+-- Delta sync (GET /api/products/changes, /api/customers/changes) reads a
+-- user's rows in change_seq order. The entities declare the same indexes.
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_products_user_change' AND object_id = OBJECT_ID('products'))
+    CREATE INDEX idx_products_user_change ON products (user_id, change_seq);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_customers_user_change' AND object_id = OBJECT_ID('customers'))
+    CREATE INDEX idx_customers_user_change ON customers (user_id, change_seq);
@@ -0,0 +1,7 @@
+-- Barcode scans (GET /api/products/scan/{code}) and the duplicate check on
+-- product writes look products up by (user_id, barcode). The entity declares
+-- the same unique constraint. SQL Server treats NULLs as equal in a unique
+-- index, so products without a barcode are filtered out of it.
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'uk_products_user_barcode' AND object_id = OBJECT_ID('products'))
+    CREATE UNIQUE INDEX uk_products_user_barcode ON products (user_id, barcode) WHERE barcode IS NOT NULL;
@@ -0,0 +1,15 @@
+-- The products entity used to declare uk_products_user_barcode itself, so
+-- ddl-auto created it unfiltered before V5 ran, and V5 then kept it. SQL Server
+-- treats NULLs as equal in it, so a user's second product without a barcode
+-- was rejected. Replace it with the filtered index V5 meant to create.
+
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'uk_products_user_barcode' AND object_id = OBJECT_ID('products') AND has_filter = 0)
+BEGIN
+    IF EXISTS (SELECT 1 FROM sys.key_constraints WHERE name = 'uk_products_user_barcode' AND parent_object_id = OBJECT_ID('products'))
+        ALTER TABLE products DROP CONSTRAINT uk_products_user_barcode;
+    ELSE
+        DROP INDEX uk_products_user_barcode ON products;
+END;
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'uk_products_user_barcode' AND object_id = OBJECT_ID('products'))
+    CREATE UNIQUE INDEX uk_products_user_barcode ON products (user_id, barcode) WHERE barcode IS NOT NULL;
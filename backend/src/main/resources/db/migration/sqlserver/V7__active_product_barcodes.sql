@@ -0,0 +1,13 @@
+-- A deactivated product keeps its barcode, and only active products need
+-- distinct barcodes, so a replacement can reuse one. The duplicate check on
+-- product writes filters on is_active = 1 too, so it can use this index.
+
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'uk_products_user_barcode' AND object_id = OBJECT_ID('products'))
+BEGIN
+    IF EXISTS (SELECT 1 FROM sys.key_constraints WHERE name = 'uk_products_user_barcode' AND parent_object_id = OBJECT_ID('products'))
+        ALTER TABLE products DROP CONSTRAINT uk_products_user_barcode;
+    ELSE
+        DROP INDEX uk_products_user_barcode ON products;
+END;
+
+CREATE UNIQUE INDEX uk_products_user_barcode ON products (user_id, barcode) WHERE barcode IS NOT NULL AND is_active = 1;
@@ -0,0 +1,150 @@
+package com.webthanhtoan.backend.benchmark;
+
+import com.webthanhtoan.backend.WebThanhToanApplication;
+import com.webthanhtoan.backend.dto.InvoiceResponse;
+import com.webthanhtoan.backend.dto.PageCursor;
+import com.webthanhtoan.backend.entity.Customer;
+import com.webthanhtoan.backend.entity.Invoice;
+import com.webthanhtoan.backend.entity.Money;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.repository.InvoiceRepository;
+import com.webthanhtoan.backend.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of GET /api/invoices: the record projection the endpoint uses now
+ * against loading entities with their customer and copying them into nested
+ * HashMaps, as the controller used to. Run with {@code -Djmh.args="-prof gc"}
+ * for the allocation rate per call.
+ *
+ * Both read the same rows with the same keyset predicate. H2 sorts the whole
+ * history of the user once a created_at bound is a parameter, which dominates
+ * both and is not what PostgreSQL does, so compare the two rather than taking
+ * the absolute times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceListBenchmark {
+
+    private static final int INVOICES = 5_000;
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Param({"50", "200"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+
+    private InvoiceRepository invoiceRepository;
+
+    private EntityManager entityManager;
+
+    private TransactionTemplate readOnly;
+
+    private User user;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = SpringApplication.run(WebThanhToanApplication.class,
+                "--spring.profiles.active=test", "--server.port=0");
+        invoiceRepository = context.getBean(InvoiceRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        user = context.getBean(UserRepository.class).findByUsername("admin").orElseThrow();
+
+        TransactionTemplate write = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        write.executeWithoutResult(status -> {
+            Customer customer = new Customer("Benchmark customer", "0900000000", "bench@example.com", "Hà Nội");
+            customer.setUser(entityManager.getReference(User.class, user.getId()));
+            entityManager.persist(customer);
+            for (int i = 0; i < INVOICES; i++) {
+                Invoice invoice = new Invoice("BENCH-" + i, i % 2 == 0 ? customer : null,
+                        entityManager.getReference(User.class, user.getId()), "CASH");
+                invoice.setSubtotal(Money.of(BigDecimal.valueOf(100_000 + i)));
+                invoice.setDiscountAmount(Money.ZERO);
+                invoice.setDiscountPercentage(BigDecimal.ZERO);
+                invoice.setTotalAmount(Money.of(BigDecimal.valueOf(100_000 + i)));
+                invoice.setPaymentStatus("PAID");
+                entityManager.persist(invoice);
+                if (i % 500 == 499) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<InvoiceResponse> projectedPage() {
+        return invoiceRepository.findPageByUser(user, EARLIEST, LocalDateTime.now(),
+                PageCursor.START.createdAt(), PageCursor.START.id(), Limit.of(pageSize));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> entityMaps() {
+        return readOnly.execute(status -> entityManager
+                .createQuery("SELECT i FROM Invoice i LEFT JOIN FETCH i.customer WHERE i.user = :user" +
+                             " AND i.createdAt BETWEEN :startDate AND :endDate" +
+                             " AND (i.createdAt < :cursorCreatedAt OR (i.createdAt = :cursorCreatedAt AND i.id < :cursorId))" +
+                             " ORDER BY i.createdAt DESC, i.id DESC", Invoice.class)
+                .setParameter("user", user)
+                .setParameter("startDate", EARLIEST)
+                .setParameter("endDate", LocalDateTime.now())
+                .setParameter("cursorCreatedAt", PageCursor.START.createdAt())
+                .setParameter("cursorId", PageCursor.START.id())
+                .setMaxResults(pageSize)
+                .getResultList()
+                .stream()
+                .map(InvoiceListBenchmark::toMap)
+                .toList());
+    }
+
+    // The per-row conversion GET /api/invoices did before it returned InvoiceResponse
+    private static Map<String, Object> toMap(Invoice invoice) {
+        Map<String, Object> dto = new HashMap<>();
+        dto.put("id", invoice.getId());
+        dto.put("invoiceNumber", invoice.getInvoiceNumber());
+        dto.put("subtotal", invoice.getSubtotal());
+        dto.put("discountAmount", invoice.getDiscountAmount());
+        dto.put("discountPercentage", invoice.getDiscountPercentage());
+        dto.put("totalAmount", invoice.getTotalAmount());
+        dto.put("paymentMethod", invoice.getPaymentMethod());
+        dto.put("paymentStatus", invoice.getPaymentStatus());
+        dto.put("notes", invoice.getNotes());
+        dto.put("createdAt", invoice.getCreatedAt());
+        dto.put("updatedAt", invoice.getUpdatedAt());
+        if (invoice.getCustomer() != null) {
+            Map<String, Object> customerDto = new HashMap<>();
+            customerDto.put("id", invoice.getCustomer().getId());
+            customerDto.put("name", invoice.getCustomer().getName());
+            customerDto.put("phone", invoice.getCustomer().getPhone());
+            customerDto.put("email", invoice.getCustomer().getEmail());
+            customerDto.put("address", invoice.getCustomer().getAddress());
+            dto.put("customer", customerDto);
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,69 @@
+package com.webthanhtoan.backend.benchmark;
+
+import com.webthanhtoan.backend.security.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token verification per authenticated request. {@code rebuiltParserTwice} is
+ * what the auth filter used to do: derive the key, build a parser and verify
+ * the token once to validate it and once more for the username.
+ * {@code sharedParser} is a first request with a token (a cache miss) and
+ * {@code cachedToken} every later request with it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtValidationBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-0123";
+
+    private JwtUtils jwtUtils;
+
+    private JwtParser parser;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void issueToken() {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes());
+        token = Jwts.builder()
+                .subject("admin")
+                .claim(JwtUtils.USER_ID_CLAIM, 1L)
+                .claim(JwtUtils.ROLE_CLAIM, "ADMIN")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)))
+                .signWith(key, Jwts.SIG.HS256)
+                .compact();
+        parser = Jwts.parser().verifyWith(key).build();
+        jwtUtils = new JwtUtils(SECRET, (int) TimeUnit.DAYS.toMillis(1), 10_000);
+        jwtUtils.validateJwtToken(token);
+    }
+
+    @Benchmark
+    public String rebuiltParserTwice() {
+        Jwts.parser().verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes())).build().parseSignedClaims(token);
+        return Jwts.parser().verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes())).build()
+                .parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @Benchmark
+    public Claims sharedParser() {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    @Benchmark
+    public Claims cachedToken() {
+        return jwtUtils.validateJwtToken(token).orElseThrow();
+    }
+}
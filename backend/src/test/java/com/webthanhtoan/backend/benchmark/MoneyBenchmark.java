@@ -0,0 +1,101 @@
+package com.webthanhtoan.backend.benchmark;
+
+import com.webthanhtoan.backend.entity.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totals of a basket as checkout computes them: Money against the unrounded
+ * BigDecimal arithmetic it replaced, rounded to the hundredth at the end as the
+ * database did when storing it. Run with {@code -Djmh.args="-prof gc"} for the
+ * allocation rate per basket.
+ *
+ * {@code percentDecimals} 2 is what the till sends; 4 takes the full-precision
+ * path of {@link Money#percentOff}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int LINES = 20;
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    @Param({"2", "4"})
+    private int percentDecimals;
+
+    private BigDecimal[] prices;
+
+    private int[] quantities;
+
+    private BigDecimal[] discounts;
+
+    private BigDecimal[] percentages;
+
+    private Money[] moneyPrices;
+
+    private Money[] moneyDiscounts;
+
+    private BigDecimal invoicePercentage;
+
+    @Setup(Level.Trial)
+    public void createBasket() {
+        Random random = new Random(42);
+        prices = new BigDecimal[LINES];
+        quantities = new int[LINES];
+        discounts = new BigDecimal[LINES];
+        percentages = new BigDecimal[LINES];
+        moneyPrices = new Money[LINES];
+        moneyDiscounts = new Money[LINES];
+        for (int i = 0; i < LINES; i++) {
+            prices[i] = BigDecimal.valueOf(1_000 + random.nextInt(5_000_000));
+            quantities[i] = 1 + random.nextInt(5);
+            discounts[i] = i % 4 == 0 ? BigDecimal.valueOf(random.nextInt(1_000)) : BigDecimal.ZERO;
+            percentages[i] = i % 3 == 0 ? percentage(random) : BigDecimal.ZERO;
+            moneyPrices[i] = Money.of(prices[i]);
+            moneyDiscounts[i] = Money.of(discounts[i]);
+        }
+        invoicePercentage = percentage(random);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < LINES; i++) {
+            BigDecimal line = prices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            subtotal = subtotal.add(bigDecimalDiscounted(line, discounts[i], percentages[i]));
+        }
+        return bigDecimalDiscounted(subtotal, BigDecimal.ZERO, invoicePercentage).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public Money moneyTotal() {
+        Money subtotal = Money.ZERO;
+        for (int i = 0; i < LINES; i++) {
+            Money line = moneyPrices[i].times(quantities[i]).minus(moneyDiscounts[i]);
+            subtotal = subtotal.plus(percentages[i].signum() == 0 ? line : line.percentOff(percentages[i]));
+        }
+        return subtotal.percentOff(invoicePercentage);
+    }
+
+    // CheckoutService#calculateTotal before Money
+    private static BigDecimal bigDecimalDiscounted(BigDecimal amount, BigDecimal discountAmount, BigDecimal percentage) {
+        BigDecimal total = amount.subtract(discountAmount);
+        if (percentage.compareTo(BigDecimal.ZERO) > 0) {
+            total = total.subtract(total.multiply(percentage).divide(HUNDRED));
+        }
+        return total;
+    }
+
+    private BigDecimal percentage(Random random) {
+        return BigDecimal.valueOf(1 + random.nextInt((int) Math.pow(10, percentDecimals) * 50), percentDecimals);
+    }
+}
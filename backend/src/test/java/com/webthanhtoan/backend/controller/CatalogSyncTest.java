@@ -0,0 +1,275 @@
+package com.webthanhtoan.backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * How tills keep their copy of the catalog current: conditional GETs of the
+ * product and customer lists, delta sync through /changes, and barcode scans.
+ * Runs as manager, whose catalog no other test reads.
+ */
+@SpringBootTest(properties = "catalog.version.ttl=PT0S")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CatalogSyncTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String token;
+
+    @BeforeAll
+    void login() throws Exception {
+        String login = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"manager\",\"password\":\"admin123\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        token = "Bearer " + objectMapper.readTree(login).get("token").asText();
+    }
+
+    @Test
+    void productListIsNotModifiedUntilAProductChanges() throws Exception {
+        createProduct(null, 5);
+        String eTag = eTag(get("/api/products"));
+
+        mockMvc.perform(authorized(get("/api/products")).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        JsonNode product = createProduct(null, 5);
+        String changed = eTag(get("/api/products"));
+        assertNotEquals(eTag, changed);
+        mockMvc.perform(authorized(get("/api/products")).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+
+        // A sale moves stock, so the list changes too
+        sell(product.get("id").asLong(), 1);
+        assertNotEquals(changed, eTag(get("/api/products")));
+    }
+
+    @Test
+    void customerListIsNotModifiedUntilACustomerChanges() throws Exception {
+        createCustomer("Khách " + UUID.randomUUID());
+        String eTag = eTag(get("/api/customers"));
+
+        mockMvc.perform(authorized(get("/api/customers")).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        long customerId = createCustomer("Khách " + UUID.randomUUID()).get("id").asLong();
+        String changed = eTag(get("/api/customers"));
+        assertNotEquals(eTag, changed);
+
+        mockMvc.perform(authorized(delete("/api/customers/{id}", customerId))).andExpect(status().isOk());
+        assertNotEquals(changed, eTag(get("/api/customers")));
+    }
+
+    @Test
+    void productChangesIncludeDeactivatedProducts() throws Exception {
+        String since = syncAll("/api/products/changes", null).next();
+
+        JsonNode kept = createProduct(null, 5);
+        JsonNode removed = createProduct(null, 5);
+        Sync first = syncAll("/api/products/changes", since);
+        assertEquals(List.of(kept.get("id").asLong(), removed.get("id").asLong()), first.upserts());
+        assertEquals(List.of(), first.deleted());
+
+        mockMvc.perform(authorized(delete("/api/products/{id}", removed.get("id").asLong()))).andExpect(status().isOk());
+        Sync second = syncAll("/api/products/changes", first.next());
+        assertEquals(List.of(), second.upserts());
+        assertEquals(List.of(removed.get("id").asLong()), second.deleted());
+
+        // Nothing changed since: an empty change set that keeps the token
+        Sync third = syncAll("/api/products/changes", second.next());
+        assertTrue(third.upserts().isEmpty() && third.deleted().isEmpty());
+        assertEquals(second.next(), third.next());
+    }
+
+    @Test
+    void customerChangesIncludeDeletedCustomers() throws Exception {
+        String since = syncAll("/api/customers/changes", null).next();
+
+        long customerId = createCustomer("Khách " + UUID.randomUUID()).get("id").asLong();
+        Sync first = syncAll("/api/customers/changes", since);
+        assertEquals(List.of(customerId), first.upserts());
+
+        mockMvc.perform(authorized(delete("/api/customers/{id}", customerId))).andExpect(status().isOk());
+        Sync second = syncAll("/api/customers/changes", first.next());
+        assertEquals(List.of(), second.upserts());
+        assertEquals(List.of(customerId), second.deleted());
+    }
+
+    @Test
+    void changesArePagedWithoutGapsOrRepeats() throws Exception {
+        String since = syncAll("/api/products/changes", null).next();
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(createProduct(null, 1).get("id").asLong());
+        }
+
+        List<Long> synced = new ArrayList<>();
+        String next = since;
+        boolean hasMore = true;
+        int pages = 0;
+        while (hasMore) {
+            JsonNode page = json(mockMvc.perform(authorized(get("/api/products/changes")).param("since", next).param("limit", "2"))
+                    .andExpect(status().isOk()).andReturn());
+            page.get("upserts").forEach(product -> synced.add(product.get("id").asLong()));
+            next = page.get("next").asText();
+            hasMore = page.get("hasMore").asBoolean();
+            pages++;
+        }
+        assertEquals(created, synced);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void invalidSyncTokenIsRejected() throws Exception {
+        mockMvc.perform(authorized(get("/api/products/changes")).param("since", "not-a-token"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void barcodeScanFindsActiveProductsOnly() throws Exception {
+        String barcode = "893" + Math.abs(UUID.randomUUID().getMostSignificantBits() % 1_000_000_000L);
+        JsonNode product = createProduct(" " + barcode + " ", 7);
+        long productId = product.get("id").asLong();
+
+        JsonNode scanned = json(mockMvc.perform(authorized(get("/api/products/scan/{code}", barcode)))
+                .andExpect(status().isOk()).andReturn());
+        assertEquals(productId, scanned.get("id").asLong());
+        assertEquals(barcode, scanned.get("barcode").asText());
+        assertEquals(7, scanned.get("stock").asInt());
+
+        mockMvc.perform(authorized(get("/api/products/scan/{code}", barcode + "9"))).andExpect(status().isNotFound());
+
+        // A stock change shows on the next scan
+        sell(productId, 2);
+        scanned = json(mockMvc.perform(authorized(get("/api/products/scan/{code}", barcode)))
+                .andExpect(status().isOk()).andReturn());
+        assertEquals(5, scanned.get("stock").asInt());
+
+        mockMvc.perform(authorized(delete("/api/products/{id}", productId))).andExpect(status().isOk());
+        mockMvc.perform(authorized(get("/api/products/scan/{code}", barcode))).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void changedBarcodeIsFoundUnderTheNewCodeOnly() throws Exception {
+        String oldCode = "OLD-" + UUID.randomUUID();
+        String newCode = "NEW-" + UUID.randomUUID();
+        JsonNode product = createProduct(oldCode, 3);
+
+        Map<String, Object> changed = new LinkedHashMap<>();
+        changed.put("name", product.get("name").asText());
+        changed.put("barcode", newCode);
+        changed.put("price", 10);
+        changed.put("costPrice", 5);
+        changed.put("stock", 3);
+        changed.put("isActive", true);
+        mockMvc.perform(authorized(put("/api/products/{id}", product.get("id").asLong()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(changed)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(authorized(get("/api/products/scan/{code}", newCode))).andExpect(status().isOk());
+        mockMvc.perform(authorized(get("/api/products/scan/{code}", oldCode))).andExpect(status().isNotFound());
+    }
+
+    private record Sync(List<Long> upserts, List<Long> deleted, String next) {}
+
+    // Follows hasMore to the end, as a till does
+    private Sync syncAll(String path, String since) throws Exception {
+        List<Long> upserts = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        String next = since;
+        boolean hasMore = true;
+        while (hasMore) {
+            MockHttpServletRequestBuilder request = authorized(get(path)).param("limit", "500");
+            if (next != null) {
+                request.param("since", next);
+            }
+            JsonNode page = json(mockMvc.perform(request).andExpect(status().isOk()).andReturn());
+            page.get("upserts").forEach(item -> upserts.add(item.get("id").asLong()));
+            page.get("deleted").forEach(id -> deleted.add(id.asLong()));
+            next = page.get("next").asText();
+            hasMore = page.get("hasMore").asBoolean();
+        }
+        return new Sync(upserts, deleted, next);
+    }
+
+    private JsonNode createProduct(String barcode, int stock) throws Exception {
+        Map<String, Object> product = new LinkedHashMap<>();
+        product.put("name", "Sync test " + UUID.randomUUID());
+        product.put("barcode", barcode);
+        product.put("price", 10);
+        product.put("costPrice", 5);
+        product.put("stock", stock);
+        return json(mockMvc.perform(authorized(post("/api/products"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(product)))
+                .andExpect(status().isOk()).andReturn());
+    }
+
+    private JsonNode createCustomer(String name) throws Exception {
+        return json(mockMvc.perform(authorized(post("/api/customers"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", name))))
+                .andExpect(status().isOk()).andReturn());
+    }
+
+    private void sell(long productId, int quantity) throws Exception {
+        Map<String, Object> invoice = Map.of(
+                "paymentMethod", "CASH",
+                "items", List.of(Map.of("productId", productId, "quantity", quantity)));
+        mockMvc.perform(authorized(post("/api/invoices"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(invoice)))
+                .andExpect(status().isOk());
+    }
+
+    private String eTag(MockHttpServletRequestBuilder request) throws Exception {
+        String eTag = mockMvc.perform(authorized(request)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertFalse(eTag == null || eTag.isEmpty(), "no ETag");
+        return eTag;
+    }
+
+    private JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request) {
+        return request.header(HttpHeaders.AUTHORIZATION, token);
+    }
+}
@@ -0,0 +1,141 @@
+package com.webthanhtoan.backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Keyset pagination of the invoice list, across invoices that share a
+ * createdAt. Runs as cashier1 on days no other test writes invoices on.
+ */
+@SpringBootTest(properties = "catalog.version.ttl=PT0S")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class InvoicePageTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String token;
+
+    // Newest first, as listed
+    private final List<Long> invoices = new ArrayList<>();
+
+    @BeforeAll
+    void seedInvoices() throws Exception {
+        String login = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"cashier1\",\"password\":\"admin123\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        token = "Bearer " + objectMapper.readTree(login).get("token").asText();
+
+        Map<String, Object> product = Map.of("name", "Page test product", "price", 10, "costPrice", 5, "stock", 100);
+        long productId = json(authorized(post("/api/products"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(product))).get("id").asLong();
+
+        // Three sales in the same second, between an earlier and a later one
+        List<LocalDateTime> saleTimes = List.of(NOON.minusHours(1), NOON, NOON, NOON, NOON.plusHours(1));
+        for (LocalDateTime soldAt : saleTimes) {
+            Map<String, Object> invoice = new LinkedHashMap<>();
+            invoice.put("paymentMethod", "CASH");
+            invoice.put("soldAt", soldAt);
+            invoice.put("items", List.of(Map.of("productId", productId, "quantity", 1)));
+            invoices.add(0, json(authorized(post("/api/invoices"))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(invoice))).get("id").asLong());
+        }
+        // Same createdAt: higher id first
+        assertTrue(invoices.get(1) > invoices.get(2) && invoices.get(2) > invoices.get(3));
+    }
+
+    @Test
+    void pagesCoverEveryInvoiceOnceAcrossEqualTimestamps() throws Exception {
+        for (int limit = 1; limit <= 6; limit++) {
+            List<Long> listed = new ArrayList<>();
+            String cursor = null;
+            int pages = 0;
+            do {
+                JsonNode page = page(limit, cursor);
+                page.get("items").forEach(invoice -> listed.add(invoice.get("id").asLong()));
+                assertTrue(page.get("items").size() <= limit);
+                cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+                pages++;
+            } while (cursor != null);
+
+            assertEquals(invoices, listed, "limit " + limit);
+            assertEquals((invoices.size() + limit - 1) / limit, pages, "limit " + limit);
+        }
+    }
+
+    @Test
+    void lastFullPageHasNoNextCursor() throws Exception {
+        JsonNode page = page(invoices.size(), null);
+
+        assertEquals(invoices.size(), page.get("items").size());
+        assertTrue(page.get("nextCursor").isNull());
+    }
+
+    @Test
+    void limitIsClampedToAtLeastOne() throws Exception {
+        assertEquals(1, page(0, null).get("items").size());
+    }
+
+    @Test
+    void invalidCursorIsRejected() throws Exception {
+        mockMvc.perform(filter(2).param("cursor", "not-a-cursor")).andExpect(status().isBadRequest());
+    }
+
+    private JsonNode page(int limit, String cursor) throws Exception {
+        MockHttpServletRequestBuilder request = filter(limit);
+        if (cursor != null) {
+            request.param("cursor", cursor);
+        }
+        return json(request);
+    }
+
+    private MockHttpServletRequestBuilder filter(int limit) {
+        return authorized(get("/api/invoices/filter"))
+                .param("startDate", NOON.toLocalDate().toString())
+                .param("endDate", NOON.toLocalDate().toString())
+                .param("limit", String.valueOf(limit));
+    }
+
+    private JsonNode json(MockHttpServletRequestBuilder request) throws Exception {
+        String body = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request) {
+        return request.header(HttpHeaders.AUTHORIZATION, token);
+    }
+}
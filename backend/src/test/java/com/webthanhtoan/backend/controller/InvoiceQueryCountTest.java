@@ -0,0 +1,212 @@
+package com.webthanhtoan.backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webthanhtoan.backend.dto.ProductResponse;
+import com.webthanhtoan.backend.entity.Customer;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.repository.CustomerRepository;
+import com.webthanhtoan.backend.repository.ProductRepository;
+import com.webthanhtoan.backend.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the number of SQL statements each invoice, report, product and customer
+ * read endpoint runs. The seeded invoices use different customers and products,
+ * so a lazy association loaded per row shows up as a higher count.
+ *
+ * The catalog version is read on every request here (no version cache), so the
+ * product and customer counts do not depend on timing.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "catalog.version.ttl=PT0S"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class InvoiceQueryCountTest {
+
+    private static final int INVOICES = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Statistics statistics;
+
+    private String token;
+
+    private long invoiceId;
+
+    @BeforeAll
+    void seedInvoices() throws Exception {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        String login = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"admin\",\"password\":\"admin123\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        token = "Bearer " + objectMapper.readTree(login).get("token").asText();
+
+        User admin = userRepository.findByUsername("admin").orElseThrow();
+        List<ProductResponse> products = productRepository.findByUserAndIsActiveTrue(admin);
+        for (int i = 0; i < INVOICES; i++) {
+            Customer customer = new Customer("Customer " + i, "09000000" + i, null, null);
+            customer.setUser(admin);
+            customer = customerRepository.save(customer);
+
+            Map<String, Object> invoice = Map.of(
+                    "customerId", customer.getId(),
+                    "paymentMethod", "CASH",
+                    "items", List.of(
+                            Map.of("productId", products.get(2 * i).id(), "quantity", 1),
+                            Map.of("productId", products.get(2 * i + 1).id(), "quantity", 2)));
+            String created = mockMvc.perform(authorized(post("/api/invoices"))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(invoice)))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            invoiceId = objectMapper.readTree(created).get("id").asLong();
+        }
+    }
+
+    @Test
+    void invoicePage() throws Exception {
+        JsonNode page = assertStatements(1, get("/api/invoices"));
+        assertEquals(INVOICES, page.get("items").size());
+    }
+
+    @Test
+    void invoiceDetail() throws Exception {
+        // The invoice projection, then its items
+        assertStatements(2, get("/api/invoices/{id}", invoiceId));
+    }
+
+    @Test
+    void filteredInvoices() throws Exception {
+        assertStatements(1, get("/api/invoices/filter")
+                .param("startDate", today())
+                .param("endDate", today())
+                .param("status", "PAID"));
+    }
+
+    @Test
+    void jsonExport() throws Exception {
+        assertStatements(1, get("/api/invoices/export").param("format", "json"));
+    }
+
+    @Test
+    void csvExport() throws Exception {
+        assertStatements(1, get("/api/invoices/export").param("format", "csv"));
+    }
+
+    @Test
+    void revenueByDate() throws Exception {
+        assertStatements(1, get("/api/invoices/revenue-by-date")
+                .param("startDate", today())
+                .param("endDate", today()));
+    }
+
+    @Test
+    void revenueSummary() throws Exception {
+        assertStatements(1, get("/api/invoices/revenue-summary"));
+    }
+
+    @Test
+    void reportSummary() throws Exception {
+        // Daily revenue totals, then the item quantity for the statuses they contain
+        assertStatements(2, get("/api/reports/summary"));
+    }
+
+    @Test
+    void productReport() throws Exception {
+        assertStatements(1, get("/api/reports/products"));
+    }
+
+    @Test
+    void productReportExport() throws Exception {
+        assertStatements(1, get("/api/reports/products/export"));
+    }
+
+    @Test
+    void productList() throws Exception {
+        mockMvc.perform(authorized(get("/api/products"))).andExpect(status().isOk());
+        // The catalog is cached, only its version is read
+        JsonNode products = assertStatements(1, get("/api/products"));
+        assertEquals(10, products.size());
+    }
+
+    @Test
+    void productSearch() throws Exception {
+        mockMvc.perform(authorized(get("/api/products/search").param("name", "a"))).andExpect(status().isOk());
+        assertStatements(1, get("/api/products/search").param("name", "a"));
+    }
+
+    @Test
+    void customerList() throws Exception {
+        // The version for the ETag, then the customers
+        JsonNode customers = assertStatements(2, get("/api/customers"));
+        assertEquals(INVOICES, customers.size());
+    }
+
+    @Test
+    void customerSearch() throws Exception {
+        mockMvc.perform(authorized(get("/api/customers/search").param("search", "Customer"))).andExpect(status().isOk());
+        JsonNode customers = assertStatements(1, get("/api/customers/search").param("search", "Customer"));
+        assertEquals(INVOICES, customers.size());
+    }
+
+    private JsonNode assertStatements(long expected, MockHttpServletRequestBuilder request) throws Exception {
+        statistics.clear();
+        String body = mockMvc.perform(authorized(request))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(expected, statistics.getPrepareStatementCount(), "SQL statements");
+        return body.startsWith("{") || body.startsWith("[") ? objectMapper.readTree(body) : null;
+    }
+
+    private MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request) {
+        return request.header("Authorization", token);
+    }
+
+    private static String today() {
+        return LocalDate.now().toString();
+    }
+}
@@ -0,0 +1,99 @@
+package com.webthanhtoan.backend.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Parity of invoice totals with the BigDecimal checkout they replaced: lines
+ * computed unrounded, summed unrounded into the subtotal, the invoice discounts
+ * applied to that sum, and every value rounded half up to the hundredth only
+ * when stored.
+ */
+class InvoiceTotalsTest {
+
+    @Test
+    void roundsOncePerInvoice() {
+        // Three lines of 33.335 each: rounded per line the subtotal would be 100.02
+        List<InvoiceItem> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            items.add(item("66.67", 1, "0", "50"));
+        }
+        InvoiceTotals totals = totalsOf(items);
+
+        assertEquals(Money.of(new BigDecimal("33.34")), InvoiceTotals.lineTotal(items.get(0)));
+        assertEquals(Money.of(new BigDecimal("100.01")), totals.subtotal());
+        assertEquals(Money.of(new BigDecimal("100.01")), totals.total(Money.ZERO, BigDecimal.ZERO));
+    }
+
+    @Test
+    void matchesBigDecimalCheckoutOnRandomInvoices() {
+        Random random = new Random(20261018);
+        for (int n = 0; n < 20_000; n++) {
+            List<InvoiceItem> items = new ArrayList<>();
+            int lines = 1 + random.nextInt(8);
+            for (int i = 0; i < lines; i++) {
+                String price = BigDecimal.valueOf(random.nextInt(10_000_000), random.nextInt(3)).toPlainString();
+                String discountAmount = random.nextBoolean() ? "0" : BigDecimal.valueOf(random.nextInt(1000)).toPlainString();
+                String discountPercentage = random.nextBoolean() ? "0" : percentage(random);
+                items.add(item(price, 1 + random.nextInt(20), discountAmount, discountPercentage));
+            }
+            Money discountAmount = Money.of(BigDecimal.valueOf(random.nextInt(5000)));
+            BigDecimal discountPercentage = random.nextBoolean() ? BigDecimal.ZERO : new BigDecimal(percentage(random));
+
+            assertParity(items, discountAmount, discountPercentage);
+        }
+    }
+
+    private static void assertParity(List<InvoiceItem> items, Money discountAmount, BigDecimal discountPercentage) {
+        // The original checkout, line for line
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (InvoiceItem item : items) {
+            BigDecimal itemTotal = item.getUnitPrice().toBigDecimal().multiply(new BigDecimal(item.getQuantity()));
+            itemTotal = itemTotal.subtract(item.getDiscountAmount().toBigDecimal());
+            if (item.getDiscountPercentage().compareTo(BigDecimal.ZERO) > 0) {
+                itemTotal = itemTotal.subtract(itemTotal.multiply(item.getDiscountPercentage()).divide(new BigDecimal(100)));
+            }
+            assertEquals(stored(itemTotal), InvoiceTotals.lineTotal(item).toBigDecimal(), "line total");
+            subtotal = subtotal.add(itemTotal);
+        }
+        BigDecimal totalAmount = subtotal.subtract(discountAmount.toBigDecimal());
+        if (discountPercentage.compareTo(BigDecimal.ZERO) > 0) {
+            totalAmount = totalAmount.subtract(totalAmount.multiply(discountPercentage).divide(new BigDecimal(100)));
+        }
+
+        InvoiceTotals totals = totalsOf(items);
+        assertEquals(stored(subtotal), totals.subtotal().toBigDecimal(), "subtotal");
+        assertEquals(stored(totalAmount), totals.total(discountAmount, discountPercentage).toBigDecimal(), "total");
+    }
+
+    private static InvoiceTotals totalsOf(List<InvoiceItem> items) {
+        InvoiceTotals totals = new InvoiceTotals();
+        for (InvoiceItem item : items) {
+            totals.add(item);
+        }
+        return totals;
+    }
+
+    private static InvoiceItem item(String unitPrice, int quantity, String discountAmount, String discountPercentage) {
+        InvoiceItem item = new InvoiceItem(null, null, quantity, Money.of(new BigDecimal(unitPrice)), Money.ZERO);
+        item.setDiscountAmount(Money.of(new BigDecimal(discountAmount)));
+        item.setDiscountPercentage(new BigDecimal(discountPercentage));
+        return item;
+    }
+
+    private static String percentage(Random random) {
+        // Up to 100%, in whole, half and basis points
+        return BigDecimal.valueOf(random.nextInt(10_001), 2).stripTrailingZeros().toPlainString();
+    }
+
+    private static BigDecimal stored(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,94 @@
+package com.webthanhtoan.backend.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Parity of Money with the BigDecimal arithmetic it replaced: amounts were
+ * computed unrounded and rounded half up to the hundredth when stored.
+ */
+class MoneyTest {
+
+    @Test
+    void percentOffMatchesExactBigDecimal() {
+        String[][] cases = {
+                {"100000", "12.5"},
+                {"100000", "12.35"},
+                {"99999", "7.5"},
+                {"12345.67", "33.33"},
+                {"1", "50"},
+                {"0.01", "50"},
+                {"-0.01", "50"},
+                {"250000", "100"},
+                {"250000", "0.01"},
+        };
+        for (String[] c : cases) {
+            assertParity(new BigDecimal(c[0]), new BigDecimal(c[1]));
+        }
+    }
+
+    @Test
+    void percentOffIsNotRoundedToBasisPointsFirst() {
+        // 12.345% rounded to 12.35% first would give 876,500.00
+        assertEquals(Money.of(new BigDecimal("876550.00")),
+                Money.of(new BigDecimal("1000000")).percentOff(new BigDecimal("12.345")));
+        // 1/3 off, as a client computing it would send it
+        assertEquals(Money.of(new BigDecimal("66666.67")),
+                Money.of(new BigDecimal("100000")).percentOff(new BigDecimal("33.333333333")));
+        assertParity(new BigDecimal("19.99"), new BigDecimal("0.005"));
+        assertParity(new BigDecimal("12345678.91"), new BigDecimal("12.3456789"));
+    }
+
+    @Test
+    void percentOffMatchesExactBigDecimalOnRandomInputs() {
+        Random random = new Random(20261018);
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong(1_000_000_000_00L), 2);
+            BigDecimal percentage = BigDecimal.valueOf(random.nextInt(100_000_001), random.nextInt(7));
+            if (percentage.compareTo(BigDecimal.valueOf(100)) <= 0) {
+                assertParity(amount, percentage);
+            }
+        }
+    }
+
+    @Test
+    void lineTotalMatchesBigDecimal() {
+        BigDecimal price = new BigDecimal("35000");
+        int quantity = 3;
+        BigDecimal discount = new BigDecimal("1500");
+        BigDecimal percentage = new BigDecimal("8.75");
+
+        BigDecimal total = price.multiply(BigDecimal.valueOf(quantity)).subtract(discount);
+        BigDecimal expected = total.subtract(total.multiply(percentage).divide(BigDecimal.valueOf(100)))
+                .setScale(2, RoundingMode.HALF_UP);
+
+        Money actual = Money.of(price).times(quantity).minus(Money.of(discount)).percentOff(percentage);
+        assertEquals(Money.of(expected), actual);
+    }
+
+    @Test
+    void dividedByRoundsHalfUp() {
+        assertEquals(Money.of(new BigDecimal("0.67")), Money.of(new BigDecimal("2.00")).dividedBy(3));
+        assertEquals(Money.of(new BigDecimal("0.02")), Money.of(new BigDecimal("0.03")).dividedBy(2));
+        assertEquals(Money.of(new BigDecimal("-0.02")), Money.of(new BigDecimal("-0.03")).dividedBy(2));
+    }
+
+    @Test
+    void arithmeticFailsOnOverflow() {
+        assertThrows(ArithmeticException.class, () -> new Money(Long.MAX_VALUE).plus(new Money(1)));
+        assertThrows(ArithmeticException.class, () -> new Money(Long.MAX_VALUE / 2).times(3));
+    }
+
+    private static void assertParity(BigDecimal amount, BigDecimal percentage) {
+        BigDecimal expected = amount.subtract(amount.multiply(percentage).divide(BigDecimal.valueOf(100)))
+                .setScale(2, RoundingMode.HALF_UP);
+        assertEquals(Money.of(expected), Money.of(amount).percentOff(percentage),
+                () -> amount + " less " + percentage + "%");
+    }
+}
@@ -0,0 +1,35 @@
+package com.webthanhtoan.backend.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL Hibernate sends on the current thread, so a test can look at
+ * what a repository method actually runs. Registered with
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}.
+ */
+public class CapturingStatementInspector implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return sql;
+    }
+
+    /**
+     * The statements run by {@code action}, in order.
+     */
+    public static List<String> capture(Runnable action) {
+        STATEMENTS.get().clear();
+        try {
+            action.run();
+            return List.copyOf(STATEMENTS.get());
+        } finally {
+            STATEMENTS.remove();
+        }
+    }
+}
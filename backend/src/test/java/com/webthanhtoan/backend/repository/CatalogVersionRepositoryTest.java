@@ -0,0 +1,33 @@
+package com.webthanhtoan.backend.repository;
+
+import com.webthanhtoan.backend.dto.CatalogVersions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class CatalogVersionRepositoryTest {
+
+    private static final Long USER_ID = 9001L;
+
+    @Autowired
+    private CatalogVersionRepository catalogVersionRepository;
+
+    @Test
+    void createIfMissingKeepsAnExistingRow() {
+        catalogVersionRepository.createIfMissing(USER_ID);
+        assertEquals(1, catalogVersionRepository.incrementProductVersion(USER_ID));
+
+        catalogVersionRepository.createIfMissing(USER_ID);
+
+        CatalogVersions versions = catalogVersionRepository.findVersions(USER_ID).orElseThrow();
+        assertEquals(1L, versions.products());
+        assertEquals(0L, versions.customers());
+    }
+}
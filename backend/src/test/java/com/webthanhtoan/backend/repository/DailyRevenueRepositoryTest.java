@@ -0,0 +1,40 @@
+package com.webthanhtoan.backend.repository;
+
+import com.webthanhtoan.backend.entity.DailyRevenue;
+import com.webthanhtoan.backend.entity.Money;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class DailyRevenueRepositoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2031, 1, 15);
+
+    @Autowired
+    private DailyRevenueRepository dailyRevenueRepository;
+
+    @Test
+    void addOrCreateInsertsThenAddsToTheSameRow() {
+        dailyRevenueRepository.addOrCreate(1L, DAY, "CASH", "PAID", 1, new BigDecimal("10.50"), new BigDecimal("12.00"));
+        dailyRevenueRepository.addOrCreate(1L, DAY, "CASH", "PAID", 2, new BigDecimal("4.25"), new BigDecimal("5.00"));
+        dailyRevenueRepository.addOrCreate(1L, DAY, "CARD", "PAID", 1, new BigDecimal("1.00"), new BigDecimal("1.00"));
+
+        List<DailyRevenue> rows = dailyRevenueRepository.findByBusinessDateBetween(DAY, DAY);
+        assertEquals(2, rows.size());
+        DailyRevenue cash = rows.stream().filter(row -> row.getPaymentMethod().equals("CASH")).findFirst().orElseThrow();
+        assertEquals(3L, cash.getInvoiceCount());
+        assertEquals(Money.of(new BigDecimal("14.75")), cash.getRevenue());
+        assertEquals(Money.of(new BigDecimal("17.00")), cash.getSubtotal());
+    }
+}
@@ -0,0 +1,73 @@
+package com.webthanhtoan.backend.repository;
+
+import com.webthanhtoan.backend.entity.Product;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.service.ProductCatalogService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Barcodes are unique among a user's active products, both in the check on
+ * product writes and in uk_products_user_barcode from the migrations.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ProductBarcodeTest {
+
+    private static final String BARCODE = "8930000000017";
+
+    @Autowired
+    private ProductCatalogService productCatalogService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void deactivatedProductKeepsItsBarcode() {
+        Product original = productCatalogService.save(product(" " + BARCODE + " "));
+        assertEquals(BARCODE, original.getBarcode());
+
+        original.setIsActive(false);
+        productCatalogService.save(original);
+        assertEquals(BARCODE, productRepository.findById(original.getId()).orElseThrow().getBarcode());
+
+        // Free for a replacement while the original is inactive, but not for both at once
+        productCatalogService.save(product(BARCODE));
+        original.setIsActive(true);
+        assertThrows(IllegalArgumentException.class, () -> productCatalogService.save(original));
+    }
+
+    @Test
+    void indexOnlyCoversActiveProducts() {
+        Product first = product(BARCODE);
+        first.setIsActive(false);
+        productRepository.saveAndFlush(first);
+        Product second = product(BARCODE);
+        second.setIsActive(false);
+        productRepository.saveAndFlush(second);
+        productRepository.saveAndFlush(product(BARCODE));
+
+        assertThrows(DataIntegrityViolationException.class, () -> productRepository.saveAndFlush(product(BARCODE)));
+    }
+
+    private Product product(String barcode) {
+        User admin = userRepository.findByUsername("admin").orElseThrow();
+        Product product = new Product("Scanned item", null, null, new BigDecimal("10000"), 5);
+        product.setBarcode(barcode);
+        product.setUser(admin);
+        return product;
+    }
+}
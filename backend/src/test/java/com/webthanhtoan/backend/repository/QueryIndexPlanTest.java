@@ -0,0 +1,126 @@
+package com.webthanhtoan.backend.repository;
+
+import com.webthanhtoan.backend.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the per-user queries are planned on the indexes from the Flyway
+ * migrations. The SQL is what the repository methods actually run, captured
+ * with {@link CapturingStatementInspector}, and is explained here on H2, the
+ * test database; {@link QueryIndexPlanPostgresTest} explains the same SQL on
+ * PostgreSQL.
+ */
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.webthanhtoan.backend.repository.CapturingStatementInspector")
+@ActiveProfiles("test")
+class QueryIndexPlanTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    private static final LocalDateTime END = LocalDateTime.of(2031, 1, 1, 0, 0);
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceItemRepository invoiceItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private User user;
+
+    @BeforeEach
+    void loadUser() {
+        user = userRepository.findByUsername("admin").orElseThrow();
+    }
+
+    @Test
+    void invoicePageUsesUserCreatedIndex() {
+        assertPlanUses("idx_invoices_user_created", () ->
+                invoiceRepository.findPageByUser(user, START, END, END, Long.MAX_VALUE, Limit.of(20)));
+    }
+
+    @Test
+    void statusFilterUsesUserStatusCreatedIndex() {
+        assertPlanUses("idx_invoices_user_status_created", () ->
+                invoiceRepository.findPageByUserAndPaymentStatus(user, "PAID", START, END, END, Long.MAX_VALUE, Limit.of(20)));
+    }
+
+    @Test
+    void invoiceItemsUseInvoiceIndex() {
+        assertPlanUses("idx_invoice_items_invoice", () -> invoiceItemRepository.findResponsesByInvoiceId(1L));
+    }
+
+    @Test
+    void paidItemsUseStatusAndSalesIndexes() {
+        // The product sales report, which replaced findPaidItemsBetweenDates
+        Runnable sumByProduct = () -> invoiceItemRepository.sumByProduct(user, "PAID", START, END,
+                PageRequest.of(0, 20, JpaSort.unsafe(Sort.Direction.DESC, "SUM(ii.totalPrice)")));
+        assertPlanUses("idx_invoices_user_status_created", sumByProduct);
+        assertPlanUses("idx_invoice_items_sales", sumByProduct);
+    }
+
+    @Test
+    void activeProductsUseUserActiveIndex() {
+        assertPlanUses("idx_products_user_active", () -> productRepository.findByUserAndIsActiveTrue(user));
+    }
+
+    @Test
+    void customersUseUserIndex() {
+        assertPlanUses("idx_customers_user", () -> customerRepository.findByUser(user));
+    }
+
+    private void assertPlanUses(String index, Runnable query) {
+        List<String> statements = CapturingStatementInspector.capture(query);
+        assertEquals(1, statements.size(), () -> "Expected one statement: " + statements);
+        String plan = explain(statements.get(0));
+        assertTrue(plan.toLowerCase().contains(index), () -> "Expected " + index + " in plan:\n" + plan);
+    }
+
+    /**
+     * The plan of {@code sql}, its parameters left unbound. H2 plans a statement
+     * when it is prepared, so the parameters are bound to null only to run it.
+     */
+    protected String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setObject(i, null);
+                }
+                try (ResultSet plan = statement.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            }
+        });
+    }
+}
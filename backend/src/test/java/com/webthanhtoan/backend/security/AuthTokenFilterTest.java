@@ -0,0 +1,87 @@
+package com.webthanhtoan.backend.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webthanhtoan.backend.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Changes to a user written straight to the users table, as another backend
+ * instance or an instance before a restart would have, never reach this
+ * instance's entity listener; tokens issued before them must still stop being
+ * trusted once the change time is read again.
+ */
+@SpringBootTest(properties = "auth.user-change.ttl=PT0S")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthTokenFilterTest {
+
+    private static final String USERNAME = "user2";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserAccountCache userAccountCache;
+
+    @AfterEach
+    void restoreUser() {
+        jdbcTemplate.update("UPDATE users SET is_active = TRUE, role = 'USER', updated_at = ? WHERE username = ?",
+                LocalDateTime.now(), USERNAME);
+    }
+
+    @Test
+    void deactivationElsewhereRejectsEarlierTokens() throws Exception {
+        String token = login();
+        mockMvc.perform(get("/api/invoices").header("Authorization", token)).andExpect(status().isOk());
+
+        jdbcTemplate.update("UPDATE users SET is_active = FALSE, updated_at = ? WHERE username = ?",
+                LocalDateTime.now(), USERNAME);
+
+        mockMvc.perform(get("/api/invoices").header("Authorization", token)).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void roleChangeElsewhereReloadsCachedUser() {
+        Date issuedAt = new Date();
+        User cached = userAccountCache.load(USERNAME);
+        assertEquals(User.Role.USER, cached.getRole());
+
+        jdbcTemplate.update("UPDATE users SET role = 'ADMIN', updated_at = ? WHERE username = ?",
+                LocalDateTime.now(), USERNAME);
+
+        assertTrue(userAccountCache.changedSince(cached.getId(), issuedAt));
+        assertEquals(User.Role.ADMIN, userAccountCache.load(USERNAME).getRole());
+    }
+
+    private String login() throws Exception {
+        String response = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + USERNAME + "\",\"password\":\"admin123\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return "Bearer " + objectMapper.readTree(response).get("token").asText();
+    }
+}
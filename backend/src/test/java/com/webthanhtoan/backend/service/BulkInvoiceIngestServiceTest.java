@@ -0,0 +1,165 @@
+package com.webthanhtoan.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webthanhtoan.backend.dto.BulkInvoiceResult;
+import com.webthanhtoan.backend.entity.Product;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.repository.InvoiceRepository;
+import com.webthanhtoan.backend.repository.ProductRepository;
+import com.webthanhtoan.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sales synced by a till through POST /api/invoices/bulk, booked for user2 so
+ * the admin's invoices other tests count stay as they are.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkInvoiceIngestServiceTest {
+
+    @Autowired
+    private BulkInvoiceIngestService bulkInvoiceIngestService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Value("${invoice.bulk.max-line-length}")
+    private int maxLineLength;
+
+    private User user;
+
+    private Product product;
+
+    @BeforeEach
+    void createProduct() {
+        user = userRepository.findByUsername("user2").orElseThrow();
+        product = new Product("Bulk test " + UUID.randomUUID(), null, new BigDecimal("5.00"), new BigDecimal("10.00"), 10);
+        product.setUser(user);
+        product = productRepository.save(product);
+    }
+
+    @Test
+    void resentRecordReplaysBookedInvoice() throws Exception {
+        String sale = record(UUID.randomUUID().toString(), 2, null);
+
+        JsonNode first = ingest(sale).get(0);
+        JsonNode resent = ingest(sale).get(0);
+
+        assertEquals(BulkInvoiceResult.CREATED, first.get("status").asText());
+        assertEquals(BulkInvoiceResult.REPLAYED, resent.get("status").asText());
+        assertEquals(first.get("id").asLong(), resent.get("id").asLong());
+        assertEquals(first.get("invoiceNumber").asText(), resent.get("invoice").get("invoiceNumber").asText());
+        assertEquals(8, stock());
+    }
+
+    @Test
+    void repeatedClientSaleIdInOneBodyIsBookedOnce() throws Exception {
+        String sale = record(UUID.randomUUID().toString(), 1, null);
+
+        List<JsonNode> results = ingest(sale, sale);
+
+        assertEquals(BulkInvoiceResult.CREATED, results.get(0).get("status").asText());
+        assertEquals(BulkInvoiceResult.REJECTED, results.get(1).get("status").asText());
+        assertEquals(9, stock());
+    }
+
+    @Test
+    void recordWithoutClientSaleIdIsRejected() throws Exception {
+        JsonNode result = ingest(record(null, 1, null)).get(0);
+
+        assertEquals(BulkInvoiceResult.REJECTED, result.get("status").asText());
+        assertEquals(10, stock());
+    }
+
+    @Test
+    void overlongLineIsRejectedAndTheNextOneBooked() throws Exception {
+        String padded = record(UUID.randomUUID().toString(), 1, null)
+                .replace("}", ",\"notes\":\"" + "x".repeat(maxLineLength) + "\"}");
+
+        List<JsonNode> results = ingest(padded, record(UUID.randomUUID().toString(), 1, null));
+
+        assertEquals(2, results.size());
+        assertEquals(BulkInvoiceResult.REJECTED, results.get(0).get("status").asText());
+        assertEquals(1, results.get(0).get("line").asLong());
+        assertEquals(BulkInvoiceResult.CREATED, results.get(1).get("status").asText());
+        assertEquals(2, results.get(1).get("line").asLong());
+        assertEquals(9, stock());
+    }
+
+    @Test
+    void saleTimeOfTheTillIsKept() throws Exception {
+        LocalDateTime soldAt = LocalDateTime.of(2026, 1, 5, 9, 30);
+
+        JsonNode result = ingest(record(UUID.randomUUID().toString(), 1, soldAt)).get(0);
+
+        assertEquals(BulkInvoiceResult.CREATED, result.get("status").asText());
+        assertEquals(soldAt, invoiceRepository.findById(result.get("id").asLong()).orElseThrow().getCreatedAt());
+    }
+
+    @Test
+    void saleTimeInTheFutureIsRejected() throws Exception {
+        JsonNode result = ingest(record(UUID.randomUUID().toString(), 1, LocalDateTime.now().plusHours(1))).get(0);
+
+        assertEquals(BulkInvoiceResult.REJECTED, result.get("status").asText());
+        assertTrue(result.get("error").asText().contains("future"));
+        assertEquals(10, stock());
+    }
+
+    private String record(String clientSaleId, int quantity, LocalDateTime soldAt) throws Exception {
+        Map<String, Object> sale = new LinkedHashMap<>();
+        sale.put("paymentMethod", "CASH");
+        sale.put("items", List.of(Map.of("productId", product.getId(), "quantity", quantity)));
+        if (clientSaleId != null) {
+            sale.put("clientSaleId", clientSaleId);
+        }
+        if (soldAt != null) {
+            sale.put("soldAt", soldAt);
+        }
+        return objectMapper.writeValueAsString(sale);
+    }
+
+    private List<JsonNode> ingest(String... records) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String body = String.join("\n", records) + "\n";
+        bulkInvoiceIngestService.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out, user);
+
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            results.add(objectMapper.readTree(line));
+        }
+        return results;
+    }
+
+    private int stock() {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+}
@@ -0,0 +1,213 @@
+package com.webthanhtoan.backend.service;
+
+import com.webthanhtoan.backend.dto.CreateInvoiceRequest;
+import com.webthanhtoan.backend.entity.Invoice;
+import com.webthanhtoan.backend.entity.InvoiceItem;
+import com.webthanhtoan.backend.entity.Product;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.repository.InvoiceItemRepository;
+import com.webthanhtoan.backend.repository.InvoiceRepository;
+import com.webthanhtoan.backend.repository.ProductRepository;
+import com.webthanhtoan.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stock taken and given back by checkout and invoice edits, for user1 so the
+ * admin's catalog other tests count stays as it is.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CheckoutServiceTest {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private InvoiceNumberAllocator invoiceNumberAllocator;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceItemRepository invoiceItemRepository;
+
+    private User user;
+
+    @BeforeEach
+    void loadUser() {
+        user = userRepository.findByUsername("user1").orElseThrow();
+    }
+
+    @Test
+    void oversellIsRejectedAndNoStockIsTaken() {
+        Product plenty = product(10);
+        Product scarce = product(2);
+        long invoices = invoiceRepository.count();
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> checkout(Map.of(plenty.getId(), 5, scarce.getId(), 3)));
+
+        assertEquals("Insufficient stock for product: " + scarce.getName(), e.getMessage());
+        // The UPDATE took the plentiful product's stock before the short row was noticed; rolled back
+        assertEquals(10, stock(plenty));
+        assertEquals(2, stock(scarce));
+        assertEquals(invoices, invoiceRepository.count());
+    }
+
+    @Test
+    void lastUnitCanBeSold() {
+        Product product = product(3);
+
+        checkout(Map.of(product.getId(), 3));
+
+        assertEquals(0, stock(product));
+        assertThrows(RuntimeException.class, () -> checkout(Map.of(product.getId(), 1)));
+        assertEquals(0, stock(product));
+    }
+
+    @Test
+    void concurrentSalesNeverOversell() throws Exception {
+        int stock = 30;
+        int attempts = 48;
+        Product product = product(stock);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> sales = new ArrayList<>();
+        try {
+            Callable<Boolean> sale = () -> {
+                try {
+                    checkout(Map.of(product.getId(), 1));
+                    return true;
+                } catch (RuntimeException e) {
+                    assertTrue(e.getMessage().startsWith("Insufficient stock"), e::getMessage);
+                    return false;
+                }
+            };
+            for (int i = 0; i < attempts; i++) {
+                sales.add(executor.submit(sale));
+            }
+            int sold = 0;
+            for (Future<Boolean> result : sales) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    sold++;
+                }
+            }
+
+            assertEquals(stock, sold);
+            assertEquals(0, stock(product));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void updateInvoiceMatchesLinesPerProductAndMovesNetStock() {
+        Product a = product(20);
+        Product b = product(20);
+        Product c = product(20);
+        Invoice invoice = checkout(List.of(line(a, 2), line(b, 1), line(a, 3)));
+        List<InvoiceItem> before = items(invoice);
+        assertEquals(15, stock(a));
+        assertEquals(19, stock(b));
+
+        checkoutService.updateInvoice(invoice.getId(), request(List.of(line(a, 3), line(c, 2), line(a, 1))));
+
+        List<InvoiceItem> after = items(invoice);
+        assertEquals(3, after.size());
+        // Both A lines are kept in order with their new quantities, B's line is gone and C's is new
+        assertEquals(before.get(0).getId(), after.get(0).getId());
+        assertEquals(3, after.get(0).getQuantity());
+        assertEquals(before.get(2).getId(), after.get(1).getId());
+        assertEquals(1, after.get(1).getQuantity());
+        assertEquals(c.getId(), after.get(2).getProduct().getId());
+        assertEquals(2, after.get(2).getQuantity());
+
+        assertEquals(16, stock(a));
+        assertEquals(20, stock(b));
+        assertEquals(18, stock(c));
+    }
+
+    @Test
+    void updateInvoiceBeyondStockIsRejected() {
+        Product product = product(5);
+        Invoice invoice = checkout(Map.of(product.getId(), 2));
+
+        // 2 already taken plus the 3 left: 5 fits, 6 does not
+        assertThrows(RuntimeException.class,
+                () -> checkoutService.updateInvoice(invoice.getId(), request(List.of(line(product, 6)))));
+        assertEquals(3, stock(product));
+
+        checkoutService.updateInvoice(invoice.getId(), request(List.of(line(product, 5))));
+        assertEquals(0, stock(product));
+    }
+
+    private Product product(int stock) {
+        Product product = new Product("Checkout test " + UUID.randomUUID(), null, new BigDecimal("5.00"), new BigDecimal("10.00"), stock);
+        product.setUser(user);
+        return productRepository.save(product);
+    }
+
+    private int stock(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+
+    private List<InvoiceItem> items(Invoice invoice) {
+        List<InvoiceItem> items = new ArrayList<>(invoiceItemRepository.findByInvoiceId(invoice.getId()));
+        items.sort(Comparator.comparing(InvoiceItem::getId));
+        return items;
+    }
+
+    private Invoice checkout(Map<Long, Integer> quantities) {
+        List<CreateInvoiceRequest.InvoiceItemRequest> lines = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> lines.add(line(productId, quantity)));
+        return checkout(lines);
+    }
+
+    private Invoice checkout(List<CreateInvoiceRequest.InvoiceItemRequest> lines) {
+        return checkoutService.checkout(request(lines), user, invoiceNumberAllocator.nextInvoiceNumber(user.getId()));
+    }
+
+    private static CreateInvoiceRequest request(List<CreateInvoiceRequest.InvoiceItemRequest> lines) {
+        CreateInvoiceRequest request = new CreateInvoiceRequest();
+        request.setPaymentMethod("CASH");
+        request.setItems(lines);
+        return request;
+    }
+
+    private static CreateInvoiceRequest.InvoiceItemRequest line(Product product, int quantity) {
+        return line(product.getId(), quantity);
+    }
+
+    private static CreateInvoiceRequest.InvoiceItemRequest line(Long productId, int quantity) {
+        CreateInvoiceRequest.InvoiceItemRequest line = new CreateInvoiceRequest.InvoiceItemRequest();
+        line.setProductId(productId);
+        line.setQuantity(quantity);
+        return line;
+    }
+}
@@ -0,0 +1,124 @@
+package com.webthanhtoan.backend.service;
+
+import com.webthanhtoan.backend.dto.CustomerResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * An index kept up to date with {@link CustomerSearchIndex#with} and
+ * {@link CustomerSearchIndex#without} answers every search as an index built
+ * from scratch over the same customers does.
+ */
+class CustomerSearchIndexTest {
+
+    private static final String[] FAMILY = {"Nguyễn", "Trần", "Lê", "Phạm", "Đặng", "Ngô"};
+    private static final String[] MIDDLE = {"Văn", "Thị", "Minh", "Ngọc", ""};
+    private static final String[] GIVEN = {"An", "Anh", "Bình", "Dũng", "Hà", "Hạnh", "Long", "Lan"};
+
+    private static final String[] NAME_QUERIES = {"nguyen", "nguyễn văn", "an", "anh", "th", "lan nguyen", "DANG", "pham thi ha", "x"};
+    private static final String[] PHONE_QUERIES = {"09", "090", "0901", "12", "345", "84", "+84 90", "7"};
+
+    @Test
+    void incrementalUpdatesMatchFullBuild() {
+        Random random = new Random(42);
+        Map<Long, CustomerResponse> customers = new LinkedHashMap<>();
+        for (long id = 1; id <= 200; id++) {
+            customers.put(id, customer(random, id));
+        }
+        CustomerSearchIndex index = CustomerSearchIndex.build(customers.values());
+
+        long nextId = 201;
+        for (int step = 0; step < 600; step++) {
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                CustomerResponse added = customer(random, nextId++);
+                customers.put(added.id(), added);
+                index = index.with(added);
+            } else if (operation == 1 && !customers.isEmpty()) {
+                // Renamed or renumbered in place
+                Long id = randomId(random, customers);
+                CustomerResponse changed = customer(random, id);
+                customers.put(id, changed);
+                index = index.with(changed);
+            } else if (!customers.isEmpty()) {
+                Long id = randomId(random, customers);
+                customers.remove(id);
+                index = index.without(id);
+            }
+            assertNotNull(index);
+
+            if (step % 20 == 0) {
+                assertSameAnswers(CustomerSearchIndex.build(customers.values()), index);
+            }
+        }
+        assertSameAnswers(CustomerSearchIndex.build(customers.values()), index);
+    }
+
+    @Test
+    void removingAnUnknownCustomerChangesNothing() {
+        CustomerSearchIndex index = CustomerSearchIndex.build(List.of(
+                new CustomerResponse(1L, "Nguyễn Văn An", "0901234567", null, null, null, null)));
+
+        assertEquals(index, index.without(99L));
+    }
+
+    private static void assertSameAnswers(CustomerSearchIndex built, CustomerSearchIndex updated) {
+        assertEquals(built.size(), updated.size());
+        assertEquals(new HashSet<>(built.first(Integer.MAX_VALUE)), new HashSet<>(updated.first(Integer.MAX_VALUE)));
+        for (String query : NAME_QUERIES) {
+            // Names are ranked by score, name and id: the same list, not just the same customers
+            assertEquals(built.search(query, 5), updated.search(query, 5), query);
+            assertEquals(built.search(query, Integer.MAX_VALUE), updated.search(query, Integer.MAX_VALUE), query);
+        }
+        for (String query : PHONE_QUERIES) {
+            // Numbers with equal digits are listed in slot order, which differs; compare within each group
+            String digits = SearchText.phoneDigits(query);
+            assertEquals(byGroup(built.search(query, Integer.MAX_VALUE), digits),
+                    byGroup(updated.search(query, Integer.MAX_VALUE), digits), query);
+        }
+    }
+
+    private static List<CustomerResponse> byGroup(List<CustomerResponse> found, String digits) {
+        List<CustomerResponse> sorted = new ArrayList<>(found);
+        sorted.sort(Comparator.comparing((CustomerResponse customer) -> !SearchText.phoneDigits(customer.phone()).startsWith(digits))
+                .thenComparing(CustomerResponse::id));
+        return sorted;
+    }
+
+    private static CustomerResponse customer(Random random, long id) {
+        String middle = MIDDLE[random.nextInt(MIDDLE.length)];
+        String name = FAMILY[random.nextInt(FAMILY.length)] + " " + (middle.isEmpty() ? "" : middle + " ")
+                + GIVEN[random.nextInt(GIVEN.length)];
+        String phone;
+        switch (random.nextInt(5)) {
+            case 0 -> phone = null;
+            case 1 -> phone = "+84 90" + digits(random, 7);
+            default -> phone = "09" + digits(random, 2) + "-" + digits(random, 6);
+        }
+        return new CustomerResponse(id, name, phone, null, null, null, null);
+    }
+
+    // Few distinct digits, so numbers share prefixes and suffixes
+    private static String digits(Random random, int count) {
+        StringBuilder digits = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            digits.append("01234577".charAt(random.nextInt(8)));
+        }
+        return digits.toString();
+    }
+
+    private static Long randomId(Random random, Map<Long, CustomerResponse> customers) {
+        List<Long> ids = new ArrayList<>(customers.keySet());
+        return ids.get(random.nextInt(ids.size()));
+    }
+}
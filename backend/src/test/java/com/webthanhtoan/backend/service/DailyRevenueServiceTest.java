@@ -0,0 +1,125 @@
+package com.webthanhtoan.backend.service;
+
+import com.webthanhtoan.backend.entity.DailyRevenue;
+import com.webthanhtoan.backend.entity.Invoice;
+import com.webthanhtoan.backend.entity.Money;
+import com.webthanhtoan.backend.entity.User;
+import com.webthanhtoan.backend.repository.DailyRevenueRepository;
+import com.webthanhtoan.backend.repository.InvoiceRepository;
+import com.webthanhtoan.backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DailyRevenueServiceTest {
+
+    // Far from any day other tests write invoices on
+    private static final LocalDate DAY = LocalDate.of(2032, 3, 10);
+
+    @Autowired
+    private DailyRevenueService dailyRevenueService;
+
+    @Autowired
+    private DailyRevenueRepository dailyRevenueRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void removeRows() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                dailyRevenueRepository.deleteAllInBatch(dailyRevenueRepository.findByBusinessDateBetween(DAY, DAY)));
+    }
+
+    @Test
+    void repairRewritesDriftedRows() {
+        User admin = userRepository.findByUsername("admin").orElseThrow();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            saveInvoice(admin, "CASH", "100.00");
+            saveInvoice(admin, "CASH", "50.00");
+            saveInvoice(admin, "CARD", "20.00");
+            // CASH drifted, CARD is missing and BANK has no invoices left
+            dailyRevenueRepository.addOrCreate(admin.getId(), DAY, "CASH", "PAID", 1, new BigDecimal("100.00"), new BigDecimal("100.00"));
+            dailyRevenueRepository.addOrCreate(admin.getId(), DAY, "BANK", "PAID", 1, new BigDecimal("5.00"), new BigDecimal("5.00"));
+
+            assertEquals(3, dailyRevenueService.repair(DAY, DAY));
+
+            List<DailyRevenue> rows = dailyRevenueRepository.findByBusinessDateBetween(DAY, DAY);
+            assertEquals(2, rows.size());
+            assertEquals(Money.of(new BigDecimal("150.00")), row(rows, "CASH").getRevenue());
+            assertEquals(2L, row(rows, "CASH").getInvoiceCount());
+            assertEquals(Money.of(new BigDecimal("20.00")), row(rows, "CARD").getRevenue());
+
+            // Undo the invoices with the rest of this test's writes
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    void deltaWaitsForRepairAndAppliesOnTop() throws Exception {
+        User admin = userRepository.findByUsername("admin").orElseThrow();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status ->
+                dailyRevenueRepository.addOrCreate(admin.getId(), DAY, "CASH", "PAID", 1, new BigDecimal("1.00"), new BigDecimal("1.00")));
+
+        CompletableFuture<?>[] sale = new CompletableFuture<?>[1];
+        transaction.executeWithoutResult(status -> {
+            // What repair holds while it rewrites the rows
+            DailyRevenue row = dailyRevenueRepository.lockByBusinessDateBetween(DAY, DAY).get(0);
+
+            sale[0] = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(saleStatus ->
+                    dailyRevenueRepository.addTo(admin.getId(), DAY, "CASH", "PAID", 1, new BigDecimal("10.00"), new BigDecimal("10.00"))));
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertFalse(sale[0].isDone(), "the sale's delta should wait for the repair");
+
+            row.setInvoiceCount(2L);
+            row.setRevenue(Money.of(new BigDecimal("2.00")));
+            row.setSubtotal(Money.of(new BigDecimal("2.00")));
+        });
+        sale[0].get(10, TimeUnit.SECONDS);
+
+        DailyRevenue row = dailyRevenueRepository.findByBusinessDateBetween(DAY, DAY).get(0);
+        assertEquals(3L, row.getInvoiceCount());
+        assertEquals(Money.of(new BigDecimal("12.00")), row.getRevenue());
+    }
+
+    private void saveInvoice(User user, String paymentMethod, String total) {
+        Invoice invoice = new Invoice("TEST-" + paymentMethod + "-" + total, null, user, paymentMethod);
+        invoice.setPaymentStatus("PAID");
+        invoice.setSubtotal(Money.of(new BigDecimal(total)));
+        invoice.setTotalAmount(Money.of(new BigDecimal(total)));
+        invoice = invoiceRepository.saveAndFlush(invoice);
+        // Stamped with the current time on insert, so moved to DAY afterwards
+        invoice.setCreatedAt(DAY.atTime(10, 0));
+    }
+
+    private static DailyRevenue row(List<DailyRevenue> rows, String paymentMethod) {
+        return rows.stream().filter(row -> row.getPaymentMethod().equals(paymentMethod)).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,83 @@
+package com.webthanhtoan.backend.service;
+
+import com.webthanhtoan.backend.dto.ProductResponse;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link ProductSearchIndex} is rebuilt from each catalog snapshot rather than
+ * updated in place, so it is checked against a scan of the names it was built
+ * from.
+ */
+class ProductSearchIndexTest {
+
+    private static final String[] WORDS = {"Điện", "thoại", "Sạc", "nhanh", "cáp", "USB-C", "tai", "nghe", "iPhone", "15", "Pro", "ốp", "lưng"};
+
+    private static final String[] QUERIES = {"dien thoai", "thoai", "oai", "s", "sac nhanh", "usb c", "iphone 15 pro", "pro iphone",
+            "ng", "lung op", "ĐIỆN", "xyz", "nghe tai"};
+
+    @Test
+    void matchesEveryNameContainingAllQueryWords() {
+        Random random = new Random(7);
+        List<ProductResponse> products = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            products.add(product(id, name(random)));
+        }
+        ProductSearchIndex index = ProductSearchIndex.build(products);
+
+        for (String query : QUERIES) {
+            String[] words = SearchText.tokens(SearchText.fold(query));
+            Set<Long> expected = new HashSet<>();
+            for (ProductResponse product : products) {
+                String name = SearchText.fold(product.name());
+                if (Arrays.stream(words).allMatch(name::contains)) {
+                    expected.add(product.id());
+                }
+            }
+
+            List<Long> found = index.search(query, Integer.MAX_VALUE, id -> true);
+            assertEquals(expected, new HashSet<>(found), query);
+            assertEquals(expected.size(), found.size(), query);
+        }
+    }
+
+    @Test
+    void ranksExactThenPrefixThenWordPrefixThenSubstring() {
+        ProductSearchIndex index = ProductSearchIndex.build(List.of(
+                product(1L, "Ốp lưng sạc"),
+                product(2L, "Sạc nhanh 20W"),
+                product(3L, "Cáp sạc"),
+                product(4L, "Sạc"),
+                product(5L, "Bộ phát sóng")));
+
+        assertEquals(List.of(4L, 2L, 3L, 1L), index.search("sac", 10, id -> true));
+        assertEquals(List.of(4L, 2L), index.search("sac", 2, id -> true));
+        assertEquals(List.of(2L, 1L), index.search("sac", 10, id -> id != 3L && id != 4L));
+        assertEquals(List.of(5L), index.search("ong", 10, id -> true));
+    }
+
+    private static String name(Random random) {
+        int length = 1 + random.nextInt(4);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                name.append(' ');
+            }
+            name.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return name.toString();
+    }
+
+    private static ProductResponse product(long id, String name) {
+        return new ProductResponse(id, name, null, null, BigDecimal.ONE, BigDecimal.TEN, 1, true, null, null);
+    }
+}
@@ -3,6 +3,9 @@ import { productsAPI, customersAPI, invoicesAPI } from '../services/api';
 
 const InvoiceContext = createContext();
 
+// Idempotency-Key cho từng tab đang thanh toán
+const checkoutKeys = new Map();
+
 // Hàm lưu tabs vào localStorage
 const saveTabsToLocalStorage = (tabs, activeTabId, nextTabId) => {
   try {
@@ -607,7 +610,21 @@ export const InvoiceProvider = ({ children }) => {
         }))
       };
 
-      const invoice = await invoicesAPI.create(invoiceData);
+      // Dùng lại cùng một key khi thanh toán lại tab sau lỗi mạng
+      if (!checkoutKeys.has(tabId)) {
+        checkoutKeys.set(tabId, crypto.randomUUID());
+      }
+      let invoice;
+      try {
+        invoice = await invoicesAPI.create(invoiceData, checkoutKeys.get(tabId));
+        checkoutKeys.delete(tabId);
+      } catch (error) {
+        // Server đã trả lời (không phải lỗi mạng) thì lần sau là một yêu cầu mới
+        if (!(error instanceof TypeError)) {
+          checkoutKeys.delete(tabId);
+        }
+        throw error;
+      }
       
       // Xóa tab sau khi thanh toán thành công và tự động chuyển sang tab khác
       dispatch({ type: 'REMOVE_TAB_AFTER_PAYMENT', payload: tabId });
@@ -48,54 +48,16 @@ const Dashboard = () => {
 
   const loadDashboardData = async () => {
     try {
-      // Load all invoices and low stock products
-      const [allInvoices, lowStock] = await Promise.all([
-        invoicesAPI.getAll(),
+      // Revenue for today/yesterday/this month/last month is summed by the server
+      const [summary, lowStock] = await Promise.all([
+        invoicesAPI.getRevenueSummary(),
         productsAPI.getLowStock(10)
       ]);
 
-      // Calculate stats with real data
-      const today = new Date();
-      const todayStart = new Date(today.getFullYear(), today.getMonth(), today.getDate());
-      const monthStart = new Date(today.getFullYear(), today.getMonth(), 1);
-      
-      // Tính toán cho tháng trước và ngày hôm qua để so sánh
-      const lastMonthStart = new Date(today.getFullYear(), today.getMonth() - 1, 1);
-      const lastMonthEnd = new Date(today.getFullYear(), today.getMonth(), 0);
-      const yesterday = new Date(today);
-      yesterday.setDate(yesterday.getDate() - 1);
-      const yesterdayStart = new Date(yesterday.getFullYear(), yesterday.getMonth(), yesterday.getDate());
-
-      const paidInvoices = allInvoices.filter(inv => inv.paymentStatus === 'PAID');
-      
-      // Doanh thu và giao dịch hôm nay
-      const todayInvoices = paidInvoices.filter(inv => {
-        const invoiceDate = new Date(inv.createdAt);
-        return invoiceDate >= todayStart;
-      });
-
-      // Doanh thu và giao dịch hôm qua
-      const yesterdayInvoices = paidInvoices.filter(inv => {
-        const invoiceDate = new Date(inv.createdAt);
-        return invoiceDate >= yesterdayStart && invoiceDate < todayStart;
-      });
-
-      // Doanh thu và giao dịch tháng này
-      const monthlyInvoices = paidInvoices.filter(inv => {
-        const invoiceDate = new Date(inv.createdAt);
-        return invoiceDate >= monthStart;
-      });
-
-      // Doanh thu và giao dịch tháng trước
-      const lastMonthInvoices = paidInvoices.filter(inv => {
-        const invoiceDate = new Date(inv.createdAt);
-        return invoiceDate >= lastMonthStart && invoiceDate <= lastMonthEnd;
-      });
-
-      const todayRevenue = todayInvoices.reduce((sum, inv) => sum + (inv.totalAmount || 0), 0);
-      const yesterdayRevenue = yesterdayInvoices.reduce((sum, inv) => sum + (inv.totalAmount || 0), 0);
-      const monthlyRevenue = monthlyInvoices.reduce((sum, inv) => sum + (inv.totalAmount || 0), 0);
-      const lastMonthRevenue = lastMonthInvoices.reduce((sum, inv) => sum + (inv.totalAmount || 0), 0);
+      const todayRevenue = Number(summary.todayRevenue || 0);
+      const yesterdayRevenue = Number(summary.yesterdayRevenue || 0);
+      const monthlyRevenue = Number(summary.thisMonthRevenue || 0);
+      const lastMonthRevenue = Number(summary.lastMonthRevenue || 0);
 
       // Tính phần trăm tăng trưởng
       const todayRevenueGrowth = yesterdayRevenue > 0 
@@ -114,9 +76,9 @@ const Dashboard = () => {
 
       setStats({
         monthlyRevenue,
-        monthlyTransactions: monthlyInvoices.length,
+        monthlyTransactions: summary.thisMonthTransactions,
         todayRevenue,
-        todayTransactions: todayInvoices.length,
+        todayTransactions: summary.todayTransactions,
         totalProducts: allProducts.length,
         lowStockProducts: lowStock.length,
         monthlyRevenueGrowth: Math.round(monthlyRevenueGrowth * 100) / 100,
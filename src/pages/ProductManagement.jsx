@@ -23,6 +23,7 @@ const ProductManagement = () => {
   const [itemsPerPage] = useState(8);
   const [formData, setFormData] = useState({
     name: '',
+    barcode: '',
     description: '',
     costPrice: '',
     price: '',
@@ -85,6 +86,7 @@ const ProductManagement = () => {
     try {
       const productData = {
         name: formData.name.trim(),
+        barcode: formData.barcode.trim() || null,
         description: formData.description.trim(),
         costPrice: Number(formData.costPrice),
         price: Number(formData.price),
@@ -94,7 +96,7 @@ const ProductManagement = () => {
       await addProduct(productData);
       toast.success('Sản phẩm đã được thêm thành công');
       
-      setFormData({ name: '', description: '', costPrice: '', price: '', stock: '' });
+      setFormData({ name: '', barcode: '', description: '', costPrice: '', price: '', stock: '' });
       setShowAddForm(false);
     } catch (error) {
       toast.error('Không thể thêm sản phẩm');
@@ -105,6 +107,7 @@ const ProductManagement = () => {
     setEditingProduct(product);
     setFormData({
       name: product.name,
+      barcode: product.barcode || '',
       description: product.description || '',
       costPrice: product.costPrice?.toString() || '',
       price: product.price.toString(),
@@ -127,6 +130,7 @@ const ProductManagement = () => {
     try {
       const productData = {
         name: formData.name.trim(),
+        barcode: formData.barcode.trim() || null,
         description: formData.description.trim(),
         costPrice: Number(formData.costPrice),
         price: Number(formData.price),
@@ -137,7 +141,7 @@ const ProductManagement = () => {
       toast.success('Sản phẩm đã được cập nhật thành công');
       
       setEditingProduct(null);
-      setFormData({ name: '', description: '', costPrice: '', price: '', stock: '' });
+      setFormData({ name: '', barcode: '', description: '', costPrice: '', price: '', stock: '' });
       setShowAddForm(false);
     } catch (error) {
       toast.error('Không thể cập nhật sản phẩm');
@@ -164,12 +168,12 @@ const ProductManagement = () => {
   const handleCancelForm = useCallback(() => {
     setShowAddForm(false);
     setEditingProduct(null);
-    setFormData({ name: '', description: '', costPrice: '', price: '', stock: '' });
+    setFormData({ name: '', barcode: '', description: '', costPrice: '', price: '', stock: '' });
   }, []);
 
   const handleShowAddForm = useCallback(() => {
     setEditingProduct(null);
-    setFormData({ name: '', description: '', costPrice: '', price: '', stock: '' });
+    setFormData({ name: '', barcode: '', description: '', costPrice: '', price: '', stock: '' });
     setShowAddForm(true);
   }, []);
 
@@ -380,6 +384,21 @@ const ProductManagement = () => {
                 />
               </div>
 
+              <div>
+                <label className="block text-sm font-medium text-slate-700 mb-2">
+                  Mã vạch / SKU
+                </label>
+                <input
+                  type="text"
+                  name="barcode"
+                  value={formData.barcode}
+                  onChange={handleInputChange}
+                  placeholder="Quét hoặc nhập mã vạch"
+                  className="w-full px-4 py-3 border border-slate-300 rounded-xl focus:ring-2 focus:ring-pink-500 focus:border-transparent transition-all"
+                  autoComplete="off"
+                />
+              </div>
+
               <div>
                 <label className="block text-sm font-medium text-slate-700 mb-2">
                   Mô tả sản phẩm
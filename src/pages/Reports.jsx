@@ -1,5 +1,5 @@
 import { useState, useEffect } from 'react';
-import { invoicesAPI, productsAPI, customersAPI } from '../services/api';
+import { invoicesAPI, productsAPI, customersAPI, reportsAPI } from '../services/api';
 import { 
   CalendarDaysIcon, 
   ArrowTrendingUpIcon, 
@@ -19,7 +19,7 @@ const Reports = () => {
   const [startDate, setStartDate] = useState('');
   const [endDate, setEndDate] = useState('');
   const [paymentStatus, setPaymentStatus] = useState('');
-  const [invoices, setInvoices] = useState([]);
+  const [summary, setSummary] = useState(null);
   const [loading, setLoading] = useState(false);
   const [lastUpdated, setLastUpdated] = useState(null);
   
@@ -61,240 +61,161 @@ const Reports = () => {
     return () => window.removeEventListener('focus', handleFocus);
   }, [dateRange, startDate, endDate, paymentStatus]);
 
+  // Khoảng ngày [start, end] của bộ lọc hiện tại; null = tất cả
+  const getCurrentRange = () => {
+    const today = new Date();
+    const toDate = (d) => d.toISOString().split('T')[0];
+
+    switch (dateRange) {
+      case 'today':
+        return [toDate(today), toDate(today)];
+      case 'week': {
+        const weekAgo = new Date(today);
+        weekAgo.setDate(today.getDate() - 7);
+        return [toDate(weekAgo), toDate(today)];
+      }
+      case 'month':
+        return [toDate(new Date(today.getFullYear(), today.getMonth(), 1)), toDate(today)];
+      case 'year':
+        return [toDate(new Date(today.getFullYear(), 0, 1)), toDate(today)];
+      case 'custom':
+        return startDate && endDate ? [startDate, endDate] : [null, null];
+      default:
+        return [null, null];
+    }
+  };
+
+  // Khoảng ngày dùng để so sánh tăng trưởng; null nếu không so sánh (tất cả)
+  const getComparisonRange = () => {
+    const today = new Date();
+    const toDate = (d) => d.toISOString().split('T')[0];
+
+    switch (dateRange) {
+      case 'today': {
+        // So sánh với hôm qua
+        const yesterday = new Date(today);
+        yesterday.setDate(yesterday.getDate() - 1);
+        return [toDate(yesterday), toDate(yesterday)];
+      }
+      case 'week': {
+        // So sánh với tuần trước
+        const twoWeeksAgo = new Date(today);
+        twoWeeksAgo.setDate(today.getDate() - 14);
+        const weekAgo = new Date(today);
+        weekAgo.setDate(today.getDate() - 7);
+        return [toDate(twoWeeksAgo), toDate(weekAgo)];
+      }
+      case 'month':
+        // So sánh với tháng trước
+        return [
+          toDate(new Date(today.getFullYear(), today.getMonth() - 1, 1)),
+          toDate(new Date(today.getFullYear(), today.getMonth(), 0))
+        ];
+      case 'year':
+        // So sánh với năm trước
+        return [
+          toDate(new Date(today.getFullYear() - 1, 0, 1)),
+          toDate(new Date(today.getFullYear() - 1, 11, 31))
+        ];
+      case 'custom': {
+        if (!startDate || !endDate) return null;
+        // Tính khoảng thời gian tương đương trước đó
+        const start = new Date(startDate);
+        const end = new Date(endDate);
+        const daysDiff = Math.ceil((end - start) / (1000 * 60 * 60 * 24));
+
+        const comparisonEnd = new Date(start);
+        comparisonEnd.setDate(comparisonEnd.getDate() - 1);
+        const comparisonStart = new Date(comparisonEnd);
+        comparisonStart.setDate(comparisonStart.getDate() - daysDiff);
+        return [toDate(comparisonStart), toDate(comparisonEnd)];
+      }
+      default:
+        return null;
+    }
+  };
+
   const loadReports = async () => {
     try {
       setLoading(true);
-      let data;
-      
-      // Add timestamp to avoid caching
-      const timestamp = new Date().getTime();
-      
-      if (dateRange === 'custom' && startDate && endDate) {
-        // Custom date range
-        data = await invoicesAPI.getByDateRange(startDate, endDate, paymentStatus || null);
-      } else if (dateRange !== 'all') {
-        // Predefined date ranges
-        const today = new Date();
-        let calculatedStartDate, calculatedEndDate;
-
-        switch (dateRange) {
-          case 'today':
-            calculatedStartDate = calculatedEndDate = today.toISOString().split('T')[0];
-            break;
-          case 'week':
-            const weekAgo = new Date(today);
-            weekAgo.setDate(today.getDate() - 7);
-            calculatedStartDate = weekAgo.toISOString().split('T')[0];
-            calculatedEndDate = today.toISOString().split('T')[0];
-            break;
-          case 'month':
-            const monthStart = new Date(today.getFullYear(), today.getMonth(), 1);
-            calculatedStartDate = monthStart.toISOString().split('T')[0];
-            calculatedEndDate = today.toISOString().split('T')[0];
-            break;
-          case 'year':
-            const yearStart = new Date(today.getFullYear(), 0, 1);
-            calculatedStartDate = yearStart.toISOString().split('T')[0];
-            calculatedEndDate = today.toISOString().split('T')[0];
-            break;
-          default:
-            calculatedStartDate = calculatedEndDate = null;
-        }
 
-        if (calculatedStartDate && calculatedEndDate) {
-          data = await invoicesAPI.getByDateRange(calculatedStartDate, calculatedEndDate, paymentStatus || null);
-        } else {
-          data = await invoicesAPI.getAll();
-        }
-      } else {
-        // All invoices - always get fresh data
-        if (paymentStatus) {
-          data = await invoicesAPI.getByDateRange(null, null, paymentStatus);
-        } else {
-          data = await invoicesAPI.getAll();
-        }
-      }
+      // Thống kê chỉ tính hóa đơn đã thanh toán, trừ khi lọc theo trạng thái khác
+      const status = paymentStatus || 'PAID';
+      const [currentStart, currentEnd] = getCurrentRange();
+      const comparisonRange = getComparisonRange();
 
-      console.log('Reports data loaded:', data?.length || 0, 'invoices at', new Date().toLocaleTimeString());
-      setInvoices(Array.isArray(data) ? data : []);
+      const [current, previous] = await Promise.all([
+        reportsAPI.getSummary(currentStart, currentEnd, status),
+        comparisonRange ? reportsAPI.getSummary(comparisonRange[0], comparisonRange[1], status) : null
+      ]);
+
+      setSummary(current);
       setLastUpdated(new Date());
-      
-      // Calculate comparison stats
-      await calculateComparisonStats(data);
+      setComparisonStats(calculateComparisonStats(current, previous));
     } catch (error) {
       console.error('Error loading reports:', error);
       toast.error('Không thể tải báo cáo. Vui lòng thử lại.');
-      setInvoices([]);
+      setSummary(null);
     } finally {
       setLoading(false);
     }
   };
 
-  const calculateComparisonStats = async (currentData) => {
-    try {
-      // Get comparison period data
-      const today = new Date();
-      let comparisonStartDate, comparisonEndDate;
-      
-      switch (dateRange) {
-        case 'today':
-          // So sánh với hôm qua
-          const yesterday = new Date(today);
-          yesterday.setDate(yesterday.getDate() - 1);
-          comparisonStartDate = comparisonEndDate = yesterday.toISOString().split('T')[0];
-          break;
-        case 'week':
-          // So sánh với tuần trước
-          const twoWeeksAgo = new Date(today);
-          twoWeeksAgo.setDate(today.getDate() - 14);
-          const weekAgo = new Date(today);
-          weekAgo.setDate(today.getDate() - 7);
-          comparisonStartDate = twoWeeksAgo.toISOString().split('T')[0];
-          comparisonEndDate = weekAgo.toISOString().split('T')[0];
-          break;
-        case 'month':
-          // So sánh với tháng trước
-          const lastMonthStart = new Date(today.getFullYear(), today.getMonth() - 1, 1);
-          const lastMonthEnd = new Date(today.getFullYear(), today.getMonth(), 0);
-          comparisonStartDate = lastMonthStart.toISOString().split('T')[0];
-          comparisonEndDate = lastMonthEnd.toISOString().split('T')[0];
-          break;
-        case 'year':
-          // So sánh với năm trước
-          const lastYearStart = new Date(today.getFullYear() - 1, 0, 1);
-          const lastYearEnd = new Date(today.getFullYear() - 1, 11, 31);
-          comparisonStartDate = lastYearStart.toISOString().split('T')[0];
-          comparisonEndDate = lastYearEnd.toISOString().split('T')[0];
-          break;
-        case 'custom':
-          if (startDate && endDate) {
-            // Tính khoảng thời gian tương đương trước đó
-            const start = new Date(startDate);
-            const end = new Date(endDate);
-            const daysDiff = Math.ceil((end - start) / (1000 * 60 * 60 * 24));
-            
-            const comparisonEnd = new Date(start);
-            comparisonEnd.setDate(comparisonEnd.getDate() - 1);
-            const comparisonStart = new Date(comparisonEnd);
-            comparisonStart.setDate(comparisonStart.getDate() - daysDiff);
-            
-            comparisonStartDate = comparisonStart.toISOString().split('T')[0];
-            comparisonEndDate = comparisonEnd.toISOString().split('T')[0];
-          }
-          break;
-        default:
-          // Không có so sánh cho 'all'
-          setComparisonStats({
-            revenueGrowth: 0,
-            transactionGrowth: 0,
-            avgOrderGrowth: 0,
-            discountGrowth: 0
-          });
-          return;
-      }
-
-      if (comparisonStartDate && comparisonEndDate) {
-        const comparisonData = await invoicesAPI.getByDateRange(comparisonStartDate, comparisonEndDate, paymentStatus || null);
-        
-        // Calculate current stats
-        const currentStats = calculateStats(currentData);
-        const comparisonStatsData = calculateStats(comparisonData);
-        
-        // Calculate growth percentages
-        const revenueGrowth = comparisonStatsData.totalRevenue > 0 
-          ? ((currentStats.totalRevenue - comparisonStatsData.totalRevenue) / comparisonStatsData.totalRevenue) * 100 
-          : currentStats.totalRevenue > 0 ? 100 : 0;
-          
-        const transactionGrowth = comparisonStatsData.totalInvoices > 0 
-          ? ((currentStats.totalInvoices - comparisonStatsData.totalInvoices) / comparisonStatsData.totalInvoices) * 100 
-          : currentStats.totalInvoices > 0 ? 100 : 0;
-          
-        const avgOrderGrowth = comparisonStatsData.averageOrderValue > 0 
-          ? ((currentStats.averageOrderValue - comparisonStatsData.averageOrderValue) / comparisonStatsData.averageOrderValue) * 100 
-          : currentStats.averageOrderValue > 0 ? 100 : 0;
-          
-        const discountGrowth = comparisonStatsData.totalDiscount > 0 
-          ? ((currentStats.totalDiscount - comparisonStatsData.totalDiscount) / comparisonStatsData.totalDiscount) * 100 
-          : currentStats.totalDiscount > 0 ? 100 : 0;
-
-        setComparisonStats({
-          revenueGrowth: Math.round(revenueGrowth * 100) / 100,
-          transactionGrowth: Math.round(transactionGrowth * 100) / 100,
-          avgOrderGrowth: Math.round(avgOrderGrowth * 100) / 100,
-          discountGrowth: Math.round(discountGrowth * 100) / 100
-        });
-      }
-    } catch (error) {
-      console.error('Error calculating comparison stats:', error);
-      setComparisonStats({
-        revenueGrowth: 0,
-        transactionGrowth: 0,
-        avgOrderGrowth: 0,
-        discountGrowth: 0
-      });
+  const calculateComparisonStats = (current, previous) => {
+    if (!previous) {
+      // Không có so sánh cho 'all'
+      return { revenueGrowth: 0, transactionGrowth: 0, avgOrderGrowth: 0, discountGrowth: 0 };
     }
-  };
 
-  const calculateStats = (data = invoices) => {
-    const paidInvoices = data.filter(inv => inv.paymentStatus === 'PAID');
-    
-    const totalRevenue = paidInvoices.reduce((sum, inv) => sum + (inv.totalAmount || 0), 0);
-    const totalInvoices = paidInvoices.length;
-    const averageOrderValue = totalInvoices > 0 ? totalRevenue / totalInvoices : 0;
-    const totalDiscount = paidInvoices.reduce((sum, inv) => sum + (inv.discountAmount || 0), 0);
+    const currentStats = calculateStats(current);
+    const previousStats = calculateStats(previous);
+    const growth = (now, before) => {
+      const value = before > 0 ? ((now - before) / before) * 100 : now > 0 ? 100 : 0;
+      return Math.round(value * 100) / 100;
+    };
 
     return {
-      totalRevenue,
-      totalInvoices,
-      averageOrderValue,
-      totalDiscount
+      revenueGrowth: growth(currentStats.totalRevenue, previousStats.totalRevenue),
+      transactionGrowth: growth(currentStats.totalInvoices, previousStats.totalInvoices),
+      avgOrderGrowth: growth(currentStats.averageOrderValue, previousStats.averageOrderValue),
+      discountGrowth: growth(currentStats.totalDiscount, previousStats.totalDiscount)
     };
   };
 
-  const getTopPaymentMethods = () => {
-    const paidInvoices = invoices.filter(inv => inv.paymentStatus === 'PAID');
-    const methods = {};
-    
-    paidInvoices.forEach(inv => {
-      methods[inv.paymentMethod] = (methods[inv.paymentMethod] || 0) + 1;
-    });
-
-    return Object.entries(methods)
-      .map(([method, count]) => ({ method, count }))
-      .sort((a, b) => b.count - a.count);
-  };
+  const calculateStats = (data = summary) => ({
+    totalRevenue: Number(data?.totalRevenue || 0),
+    totalInvoices: data?.invoiceCount || 0,
+    averageOrderValue: Number(data?.averageOrderValue || 0),
+    totalDiscount: Number(data?.totalDiscount || 0)
+  });
+
+  const getTopPaymentMethods = () =>
+    (summary?.paymentMethods || []).map(({ key, count }) => ({ method: key, count }));
 
-  const exportToCSV = () => {
-    if (invoices.length === 0) {
+  const exportToCSV = async () => {
+    if (!summary || summary.invoiceCount === 0) {
       toast.error('Không có dữ liệu để xuất');
       return;
     }
 
-    const headers = ['Mã hóa đơn', 'Khách hàng', 'Ngày tạo', 'Tổng tiền', 'Giảm giá', 'Phương thức thanh toán', 'Trạng thái'];
-    const csvContent = [
-      headers.join(','),
-      ...invoices.map(inv => [
-        inv.invoiceNumber || '',
-        inv.customer ? `${inv.customer.name}${inv.customer.phone ? ` - ${inv.customer.phone}` : ''}` : 'Khách lẻ',
-        inv.createdAt ? new Date(inv.createdAt).toLocaleDateString('vi-VN') : '',
-        inv.totalAmount || 0,
-        inv.discountAmount || 0,
-        inv.paymentMethod || '',
-        inv.paymentStatus || ''
-      ].join(','))
-    ].join('\n');
-
-    const blob = new Blob([csvContent], { type: 'text/csv;charset=utf-8;' });
-    const link = document.createElement('a');
-    const url = URL.createObjectURL(blob);
-    link.setAttribute('href', url);
-    link.setAttribute('download', `bao-cao-${new Date().toISOString().split('T')[0]}.csv`);
-    link.style.visibility = 'hidden';
-    document.body.appendChild(link);
-    link.click();
-    document.body.removeChild(link);
-    
-    toast.success('Đã xuất báo cáo thành công');
+    try {
+      const [currentStart, currentEnd] = getCurrentRange();
+      const blob = await invoicesAPI.export(currentStart, currentEnd, paymentStatus || null, 'csv');
+      const link = document.createElement('a');
+      const url = URL.createObjectURL(blob);
+      link.setAttribute('href', url);
+      link.setAttribute('download', `bao-cao-${new Date().toISOString().split('T')[0]}.csv`);
+      link.style.visibility = 'hidden';
+      document.body.appendChild(link);
+      link.click();
+      document.body.removeChild(link);
+      URL.revokeObjectURL(url);
+
+      toast.success('Đã xuất báo cáo thành công');
+    } catch (error) {
+      console.error('Error exporting report:', error);
+      toast.error('Không thể xuất báo cáo. Vui lòng thử lại.');
+    }
   };
 
   const formatCurrency = (amount) => {
@@ -361,8 +282,8 @@ const Reports = () => {
   const loadRecentData = async () => {
     try {
       // Load recent invoices (last 5)
-      const allInvoices = await invoicesAPI.getAll();
-      setRecentInvoices(allInvoices.slice(0, 5));
+      const recent = await invoicesAPI.getPage({ limit: 5 });
+      setRecentInvoices(recent.items);
       
       // Load low stock products
       const lowStock = await productsAPI.getLowStock(10);
@@ -139,6 +139,17 @@ export const productsAPI = {
     return handleResponse(response);
   },
 
+  // Delta sync: pass the previous result's `next` as `since`; repeat while `hasMore`
+  getChanges: async (since, limit) => {
+    const params = new URLSearchParams();
+    if (since) params.append('since', since);
+    if (limit) params.append('limit', limit);
+    const response = await fetch(`${API_BASE_URL}/products/changes?${params.toString()}`, {
+      headers: getAuthHeaders()
+    });
+    return handleResponse(response);
+  },
+
   getById: async (id) => {
     const response = await fetch(`${API_BASE_URL}/products/${id}`, {
       headers: getAuthHeaders()
@@ -146,8 +157,17 @@ export const productsAPI = {
     return handleResponse(response);
   },
 
-  search: async (name) => {
-    const response = await fetch(`${API_BASE_URL}/products/search?name=${encodeURIComponent(name)}`, {
+  // The best `limit` matches; the server caps it and defaults to 50
+  search: async (name, limit) => {
+    const limitParam = limit ? `&limit=${limit}` : '';
+    const response = await fetch(`${API_BASE_URL}/products/search?name=${encodeURIComponent(name)}${limitParam}`, {
+      headers: getAuthHeaders()
+    });
+    return handleResponse(response);
+  },
+
+  scan: async (code) => {
+    const response = await fetch(`${API_BASE_URL}/products/scan/${encodeURIComponent(code)}`, {
       headers: getAuthHeaders()
     });
     return handleResponse(response);
@@ -196,6 +216,17 @@ export const customersAPI = {
     return handleResponse(response);
   },
 
+  // Delta sync: pass the previous result's `next` as `since`; repeat while `hasMore`
+  getChanges: async (since, limit) => {
+    const params = new URLSearchParams();
+    if (since) params.append('since', since);
+    if (limit) params.append('limit', limit);
+    const response = await fetch(`${API_BASE_URL}/customers/changes?${params.toString()}`, {
+      headers: getAuthHeaders()
+    });
+    return handleResponse(response);
+  },
+
   getById: async (id) => {
     const response = await fetch(`${API_BASE_URL}/customers/${id}`, {
       headers: getAuthHeaders()
@@ -203,8 +234,9 @@ export const customersAPI = {
     return handleResponse(response);
   },
 
-  search: async (search) => {
-    const response = await fetch(`${API_BASE_URL}/customers/search?search=${encodeURIComponent(search)}`, {
+  search: async (search, limit) => {
+    const limitParam = limit ? `&limit=${limit}` : '';
+    const response = await fetch(`${API_BASE_URL}/customers/search?search=${encodeURIComponent(search)}${limitParam}`, {
       headers: getAuthHeaders()
     });
     return handleResponse(response);
@@ -239,9 +271,10 @@ export const customersAPI = {
 
 // Invoices API
 export const invoicesAPI = {
+  // unpaged=true: lấy toàn bộ hóa đơn (dùng cho báo cáo), danh sách dài nên dùng getPage
   getAll: async () => {
     const timestamp = new Date().getTime();
-    const response = await fetch(`${API_BASE_URL}/invoices?_t=${timestamp}`, {
+    const response = await fetch(`${API_BASE_URL}/invoices?unpaged=true&_t=${timestamp}`, {
       headers: getAuthHeaders()
     });
     return handleResponse(response);
@@ -255,6 +288,22 @@ export const invoicesAPI = {
     return handleResponse(response);
   },
 
+  // Trả về { items, nextCursor }; truyền nextCursor để lấy trang tiếp theo
+  getPage: async ({ cursor, limit, startDate, endDate, status } = {}) => {
+    const params = new URLSearchParams();
+    if (cursor) params.append('cursor', cursor);
+    if (limit) params.append('limit', limit);
+    if (startDate) params.append('startDate', startDate);
+    if (endDate) params.append('endDate', endDate);
+    if (status) params.append('status', status);
+    params.append('_t', new Date().getTime().toString());
+
+    const response = await fetch(`${API_BASE_URL}/invoices/filter?${params.toString()}`, {
+      headers: getAuthHeaders()
+    });
+    return handleResponse(response);
+  },
+
   getByDateRange: async (startDate, endDate, status) => {
     let url = `${API_BASE_URL}/invoices/filter?`;
     const params = new URLSearchParams();
@@ -262,6 +311,7 @@ export const invoicesAPI = {
     if (startDate) params.append('startDate', startDate);
     if (endDate) params.append('endDate', endDate);
     if (status) params.append('status', status);
+    params.append('unpaged', 'true');
     
     // Add timestamp to avoid caching
     params.append('_t', new Date().getTime().toString());
@@ -272,11 +322,15 @@ export const invoicesAPI = {
     return handleResponse(response);
   },
 
-  create: async (invoice) => {
+  // idempotencyKey: giữ nguyên khi gửi lại cùng một hóa đơn để server không tạo trùng
+  create: async (invoice, idempotencyKey) => {
     console.log('Creating invoice with data:', invoice);
     const response = await fetch(`${API_BASE_URL}/invoices`, {
       method: 'POST',
-      headers: getAuthHeaders(),
+      headers: {
+        ...getAuthHeaders(),
+        ...(idempotencyKey && { 'Idempotency-Key': idempotencyKey })
+      },
       body: JSON.stringify(invoice)
     });
     console.log('Invoice create response status:', response.status);
@@ -315,6 +369,23 @@ export const invoicesAPI = {
     return handleResponse(response);
   },
 
+  // Tải file CSV/JSON do server tạo, không cần tải toàn bộ hóa đơn về trình duyệt
+  export: async (startDate, endDate, status, format = 'csv') => {
+    const params = new URLSearchParams();
+    if (startDate) params.append('startDate', startDate);
+    if (endDate) params.append('endDate', endDate);
+    if (status) params.append('status', status);
+    params.append('format', format);
+
+    const response = await fetch(`${API_BASE_URL}/invoices/export?${params.toString()}`, {
+      headers: getAuthHeaders()
+    });
+    if (!response.ok) {
+      return handleResponse(response);
+    }
+    return response.blob();
+  },
+
   getRevenueSummary: async (date = null) => {
     const params = new URLSearchParams();
     if (date) {
@@ -327,4 +398,55 @@ export const invoicesAPI = {
     });
     return handleResponse(response);
   }
-}; 
\ No newline at end of file
+}; 
+
+// Reports API
+export const reportsAPI = {
+  // Tổng hợp doanh thu, số hóa đơn, giảm giá, phương thức thanh toán do server tính
+  getSummary: async (startDate, endDate, status) => {
+    const params = new URLSearchParams();
+    if (startDate) params.append('startDate', startDate);
+    if (endDate) params.append('endDate', endDate);
+    if (status) params.append('status', status);
+    params.append('_t', new Date().getTime().toString()); // Avoid caching
+
+    const response = await fetch(`${API_BASE_URL}/reports/summary?${params.toString()}`, {
+      headers: getAuthHeaders()
+    });
+    return handleResponse(response);
+  },
+
+  // Doanh số, giá vốn, lợi nhuận gộp theo sản phẩm; sort: revenue | quantity | margin
+  getProductSales: async ({ startDate, endDate, status, sort = 'revenue', page = 0, size } = {}) => {
+    const params = new URLSearchParams();
+    if (startDate) params.append('startDate', startDate);
+    if (endDate) params.append('endDate', endDate);
+    if (status) params.append('status', status);
+    params.append('sort', sort);
+    params.append('page', page.toString());
+    if (size) params.append('size', size.toString());
+    params.append('_t', new Date().getTime().toString()); // Avoid caching
+
+    const response = await fetch(`${API_BASE_URL}/reports/products?${params.toString()}`, {
+      headers: getAuthHeaders()
+    });
+    return handleResponse(response);
+  },
+
+  exportProductSales: async ({ startDate, endDate, status, sort = 'revenue', format = 'csv' } = {}) => {
+    const params = new URLSearchParams();
+    if (startDate) params.append('startDate', startDate);
+    if (endDate) params.append('endDate', endDate);
+    if (status) params.append('status', status);
+    params.append('sort', sort);
+    params.append('format', format);
+
+    const response = await fetch(`${API_BASE_URL}/reports/products/export?${params.toString()}`, {
+      headers: getAuthHeaders()
+    });
+    if (!response.ok) {
+      return handleResponse(response);
+    }
+    return response.blob();
+  }
+};